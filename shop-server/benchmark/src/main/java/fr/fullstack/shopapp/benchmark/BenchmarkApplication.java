@@ -0,0 +1,62 @@
+package fr.fullstack.shopapp.benchmark;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Boots the JPA layer and the services of the shop server against an in-process H2 database,
+ * without the web layer (unless started with startWeb) and without Elasticsearch.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EntityScan("fr.fullstack.shopapp.model")
+@EnableJpaRepositories("fr.fullstack.shopapp.repository")
+@ComponentScan({
+        "fr.fullstack.shopapp.migration", "fr.fullstack.shopapp.repository", "fr.fullstack.shopapp.service"
+})
+public class BenchmarkApplication {
+
+    public static ConfigurableApplicationContext start(String databaseName) {
+        return startWith("spring.datasource.url=" + getH2Url(databaseName));
+    }
+
+    /**
+     * Also boots the controllers of the API, with the metrics, on a random port.
+     *
+     * @param properties the settings of the web layer, the database is H2
+     */
+    public static ConfigurableApplicationContext startWeb(String databaseName, String... properties) {
+        String[] arguments = Stream.concat(
+                Stream.of("spring.datasource.url=" + getH2Url(databaseName), "server.port=0", "shop.metrics.port=0"),
+                Arrays.stream(properties)
+        ).map(property -> "--" + property).toArray(String[]::new);
+        return new SpringApplicationBuilder(BenchmarkApplication.class)
+                .sources(WebLayer.class)
+                .web(WebApplicationType.SERVLET)
+                .run(arguments);
+    }
+
+    public static String getH2Url(String databaseName) {
+        return "jdbc:h2:mem:" + databaseName
+                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=DAY,VALUE;DB_CLOSE_DELAY=-1";
+    }
+
+    /**
+     * @param properties the datasource, overriding the H2 one of application.properties
+     */
+    public static ConfigurableApplicationContext startWith(String... properties) {
+        // Passed as arguments: the default properties of the builder would not override application.properties
+        return new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(Arrays.stream(properties).map(property -> "--" + property).toArray(String[]::new));
+    }
+}
@@ -0,0 +1,183 @@
+package fr.fullstack.shopapp.benchmark;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Random;
+
+/**
+ * Fills the schema created by Hibernate with a deterministic catalog, using plain JDBC batches.
+ */
+public class CatalogSeeder {
+    public static final int NB_CATEGORIES = 20;
+
+    public static final int PRODUCTS_PER_SHOP = 100;
+
+    private static final int BATCH_SIZE = 5_000;
+
+    // Increment of hibernate_sequence, see the model package
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private final DataSource dataSource;
+
+    private long nextId = 1;
+
+    private final Random random = new Random(42);
+
+    public CatalogSeeder(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public static int getNbShops(int nbProducts) {
+        return Math.max(1, nbProducts / PRODUCTS_PER_SHOP);
+    }
+
+    public void seed(int nbProducts) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            long[] categoryIds = insertCategories(connection, NB_CATEGORIES);
+            long[] shopIds = insertShops(connection, getNbShops(nbProducts));
+            insertProducts(connection, nbProducts, shopIds, categoryIds);
+            restartSequence(connection);
+            connection.commit();
+        }
+    }
+
+    // Adds a shop whose products all belong to a new category, returns the ids of the shop and of the category
+    public long[] seedShopWithCategory(int nbProducts) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            // The application may have taken ids from the sequence since the last seed
+            try (Statement statement = connection.createStatement();
+                 ResultSet sequence = statement.executeQuery("SELECT nextval('hibernate_sequence')")) {
+                sequence.next();
+                nextId = Math.max(nextId, sequence.getLong(1) + 1);
+            }
+            long[] categoryIds = insertCategories(connection, 1);
+            long[] shopIds = insertShops(connection, 1);
+            insertProducts(connection, nbProducts, shopIds, categoryIds);
+            restartSequence(connection);
+            connection.commit();
+            return new long[] {shopIds[0], categoryIds[0]};
+        }
+    }
+
+    private void executeIfFull(int count, PreparedStatement... statements) throws SQLException {
+        if (count % BATCH_SIZE == 0) {
+            for (PreparedStatement statement : statements) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private long[] insertCategories(Connection connection, int nbCategories) throws SQLException {
+        long[] ids = new long[nbCategories];
+        try (PreparedStatement category = connection.prepareStatement(
+                "INSERT INTO categories (id, name) VALUES (?, ?)")) {
+            for (int i = 0; i < nbCategories; i++) {
+                ids[i] = nextId++;
+                category.setLong(1, ids[i]);
+                category.setString(2, "Category " + i);
+                category.addBatch();
+            }
+            category.executeBatch();
+        }
+        return ids;
+    }
+
+    private void insertProducts(Connection connection, int nbProducts, long[] shopIds, long[] categoryIds)
+            throws SQLException {
+        try (PreparedStatement product = connection.prepareStatement(
+                "INSERT INTO products (id, price, shop_id) VALUES (?, ?, ?)");
+             PreparedStatement localized = connection.prepareStatement(
+                     "INSERT INTO localized_product (id, description, locale, name) VALUES (?, ?, ?, ?)");
+             PreparedStatement productLocalized = connection.prepareStatement(
+                     "INSERT INTO products_localized_product (product_id, localized_product_id) VALUES (?, ?)");
+             PreparedStatement productCategory = connection.prepareStatement(
+                     "INSERT INTO products_categories (product_id, category_id) VALUES (?, ?)")) {
+            for (int i = 0; i < nbProducts; i++) {
+                long productId = nextId++;
+                product.setLong(1, productId);
+                product.setFloat(2, random.nextInt(100_00) / 100f);
+                product.setLong(3, shopIds[i / PRODUCTS_PER_SHOP % shopIds.length]);
+                product.addBatch();
+
+                long localizedId = nextId++;
+                localized.setLong(1, localizedId);
+                localized.setString(2, "Description du produit " + i);
+                localized.setString(3, "FR");
+                localized.setString(4, "Produit " + i);
+                localized.addBatch();
+                productLocalized.setLong(1, productId);
+                productLocalized.setLong(2, localizedId);
+                productLocalized.addBatch();
+
+                int firstCategory = random.nextInt(categoryIds.length);
+                productCategory.setLong(1, productId);
+                productCategory.setLong(2, categoryIds[firstCategory]);
+                productCategory.addBatch();
+                if (i % 2 == 0 && categoryIds.length > 1) {
+                    productCategory.setLong(1, productId);
+                    productCategory.setLong(2, categoryIds[(firstCategory + 1) % categoryIds.length]);
+                    productCategory.addBatch();
+                }
+
+                executeIfFull(i + 1, product, localized, productLocalized, productCategory);
+            }
+            product.executeBatch();
+            localized.executeBatch();
+            productLocalized.executeBatch();
+            productCategory.executeBatch();
+        }
+    }
+
+    private long[] insertShops(Connection connection, int nbShops) throws SQLException {
+        long[] ids = new long[nbShops];
+        LocalDate firstDay = LocalDate.of(2015, 1, 1);
+        try (PreparedStatement shop = connection.prepareStatement(
+                "INSERT INTO shops (id, created_at, in_vacations, name) VALUES (?, ?, ?, ?)");
+             PreparedStatement openingHours = connection.prepareStatement(
+                     "INSERT INTO opening_hours (id, close_at, day, open_at) VALUES (?, ?, ?, ?)");
+             PreparedStatement shopOpeningHours = connection.prepareStatement(
+                     "INSERT INTO shops_opening_hours (shop_id, opening_hours_id) VALUES (?, ?)")) {
+            for (int i = 0; i < nbShops; i++) {
+                ids[i] = nextId++;
+                shop.setLong(1, ids[i]);
+                shop.setDate(2, Date.valueOf(firstDay.plusDays(random.nextInt(3_000))));
+                shop.setBoolean(3, random.nextInt(10) == 0);
+                shop.setString(4, "Boutique " + random.nextInt(nbShops * 10));
+                shop.addBatch();
+                for (int day = 1; day <= 3; day++) {
+                    long openingHoursId = nextId++;
+                    openingHours.setLong(1, openingHoursId);
+                    openingHours.setTime(2, Time.valueOf(LocalTime.of(18, 0)));
+                    openingHours.setInt(3, day);
+                    openingHours.setTime(4, Time.valueOf(LocalTime.of(9, 0)));
+                    openingHours.addBatch();
+                    shopOpeningHours.setLong(1, ids[i]);
+                    shopOpeningHours.setLong(2, openingHoursId);
+                    shopOpeningHours.addBatch();
+                }
+                executeIfFull(i + 1, shop, openingHours, shopOpeningHours);
+            }
+            shop.executeBatch();
+            openingHours.executeBatch();
+            shopOpeningHours.executeBatch();
+        }
+        return ids;
+    }
+
+    private void restartSequence(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            // The pooled optimizer uses the ids up to the value read from the sequence
+            statement.execute("ALTER SEQUENCE hibernate_sequence RESTART WITH " + (nextId + ID_BLOCK_SIZE - 1));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package fr.fullstack.shopapp.benchmark;
+
+import fr.fullstack.shopapp.repository.ProductRepository;
+import fr.fullstack.shopapp.repository.ShopRepository;
+import fr.fullstack.shopapp.service.CategoryCounterService;
+import fr.fullstack.shopapp.service.ShopCounterService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+
+/**
+ * An application context backed by a database seeded with {@link #nbProducts} products.
+ */
+@State(Scope.Benchmark)
+public class CatalogState {
+    public static final int PAGE_SIZE = 20;
+
+    public ConfigurableApplicationContext context;
+
+    public long firstCategoryId;
+
+    public long firstShopId;
+
+    @Param({"1000", "100000", "1000000"})
+    public int nbProducts;
+
+    public ProductRepository productRepository;
+
+    public ShopRepository shopRepository;
+
+    public int getMiddlePage(long nbElements) {
+        return (int) (nbElements / PAGE_SIZE / 2);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start("catalog" + nbProducts);
+        new CatalogSeeder(context.getBean(DataSource.class)).seed(nbProducts);
+        context.getBean(ShopCounterService.class).rebuildCounters();
+        context.getBean(CategoryCounterService.class).rebuildCounters();
+        productRepository = context.getBean(ProductRepository.class);
+        shopRepository = context.getBean(ShopRepository.class);
+        // Ids are allocated in insertion order: categories first, then the shops
+        firstCategoryId = 1;
+        firstShopId = CatalogSeeder.NB_CATEGORIES + 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
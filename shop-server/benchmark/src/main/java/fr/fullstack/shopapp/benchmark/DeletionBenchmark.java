@@ -0,0 +1,80 @@
+package fr.fullstack.shopapp.benchmark;
+
+import fr.fullstack.shopapp.service.CategoryService;
+import fr.fullstack.shopapp.service.ShopService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes a shop, or a category, holding {@link DeletionState#nbProducts} products. Each iteration deletes one
+ * shop and one category seeded just before it.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DeletionBenchmark {
+    @Benchmark
+    public void deleteCategoryById(DeletionState state) throws Exception {
+        state.categoryService.deleteCategoryById(state.categoryId);
+    }
+
+    @Benchmark
+    public void deleteShopById(DeletionState state) throws Exception {
+        state.shopService.deleteShopById(state.shopId);
+    }
+
+    @State(Scope.Benchmark)
+    public static class DeletionState {
+        @Param({"100", "1000", "10000"})
+        public int nbProducts;
+
+        CategoryService categoryService;
+
+        long categoryId;
+
+        ConfigurableApplicationContext context;
+
+        CatalogSeeder seeder;
+
+        ShopService shopService;
+
+        long shopId;
+
+        @Setup(Level.Iteration)
+        public void seed() throws Exception {
+            long[] ids = seeder.seedShopWithCategory(nbProducts);
+            shopId = ids[0];
+            categoryId = ids[1];
+        }
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = BenchmarkApplication.start("deletion" + nbProducts);
+            seeder = new CatalogSeeder(context.getBean(DataSource.class));
+            categoryService = context.getBean(CategoryService.class);
+            shopService = context.getBean(ShopService.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+}
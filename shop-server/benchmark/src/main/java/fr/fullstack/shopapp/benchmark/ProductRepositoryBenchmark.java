@@ -0,0 +1,53 @@
+package fr.fullstack.shopapp.benchmark;
+
+import fr.fullstack.shopapp.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProductRepositoryBenchmark {
+    @Benchmark
+    public Page<Product> findByOrderByIdAsc(CatalogState state) {
+        return state.productRepository.findByOrderByIdAsc(PageRequest.of(0, CatalogState.PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Page<Product> findByOrderByIdAscMiddlePage(CatalogState state) {
+        return state.productRepository.findByOrderByIdAsc(
+                PageRequest.of(state.getMiddlePage(state.nbProducts), CatalogState.PAGE_SIZE)
+        );
+    }
+
+    @Benchmark
+    public Page<Product> findByShop(CatalogState state) {
+        return state.productRepository.findByShop(state.firstShopId, PageRequest.of(0, CatalogState.PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Page<Product> findByShopAndCategory(CatalogState state) {
+        return state.productRepository.findByShopAndCategory(
+                state.firstShopId, state.firstCategoryId, PageRequest.of(0, CatalogState.PAGE_SIZE)
+        );
+    }
+
+    @Benchmark
+    public Slice<Product> findSliceByShopIdOrderByIdAsc(CatalogState state) {
+        return state.productRepository.findSliceByShopIdOrderByIdAsc(
+                state.firstShopId, PageRequest.of(0, CatalogState.PAGE_SIZE)
+        );
+    }
+}
@@ -0,0 +1,187 @@
+package fr.fullstack.shopapp.benchmark;
+
+import fr.fullstack.shopapp.service.ShopCounterService;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Explains the SQL of the repository queries against a seeded catalog and fails when a plan reads a whole large
+ * table. Runs on a dedicated PostgreSQL database, the one of production, whose tables are dropped at the end:
+ * mvn package exec:exec -Pquery-plans -Dplans.url=jdbc:postgresql://localhost:5432/plans. With plans.url=h2, runs on
+ * an in-memory H2 instead, whose plans differ: it does not read an index backwards.
+ *
+ * The full rebuilds of the counters and the unfiltered listings read whole tables by design, they are not checked.
+ */
+public class QueryPlanCheck {
+    // Read from the end of an ascending index by PostgreSQL, a whole table scan on H2 which is not reported
+    private static final Set<String> BACKWARD_READS = Set.of("ShopRepository.findPage (sortBy=nbProducts)");
+
+    private static final Set<String> LARGE_TABLES = Set.of(
+            "localized_product", "opening_hours", "products", "products_categories", "products_localized_product",
+            "shop_categories", "shops", "shops_opening_hours"
+    );
+
+    // Sequential scans of PostgreSQL, table scans of H2
+    private static final Pattern FULL_SCAN = Pattern.compile("Seq Scan on (\\w+)|(\\w+)\\.tableScan");
+
+    public static void main(String[] args) throws SQLException {
+        int nbProducts = Integer.getInteger("plans.products", 1_000_000);
+        String url = System.getProperty("plans.url", "jdbc:postgresql://localhost:5432/plans");
+        ConfigurableApplicationContext context = url.equals("h2")
+                ? BenchmarkApplication.start("plans")
+                : BenchmarkApplication.startWith(
+                        "spring.datasource.url=" + url,
+                        "spring.datasource.driver-class-name=org.postgresql.Driver",
+                        "spring.datasource.username=" + System.getProperty("plans.username", "postgres"),
+                        "spring.datasource.password=" + System.getProperty("plans.password", "1234"),
+                        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect"
+                );
+
+        List<String> failures = new ArrayList<>();
+        try {
+            DataSource dataSource = context.getBean(DataSource.class);
+            CatalogSeeder seeder = new CatalogSeeder(dataSource);
+            seeder.seed(nbProducts);
+            // The seeded categories hold a twentieth of the products each: the queries by category use a narrow one
+            long[] ids = seeder.seedShopWithCategory(CatalogSeeder.PRODUCTS_PER_SHOP);
+            // The seeder writes the tables directly, the category counters of the shops are built from them
+            context.getBean(ShopCounterService.class).rebuildCounters();
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.execute("ANALYZE");
+
+            for (Map.Entry<String, String> query : getQueries(jdbcTemplate, ids[0], ids[1]).entrySet()) {
+                String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + query.getValue(), String.class));
+                List<String> scannedTables = getScannedTables(plan);
+                if (scannedTables.isEmpty()) {
+                    System.out.println("OK    " + query.getKey());
+                } else if (url.equals("h2") && BACKWARD_READS.contains(query.getKey())) {
+                    System.out.println("H2    " + query.getKey() + " reads " + scannedTables + ", not backwards");
+                } else {
+                    System.out.println("SCAN  " + query.getKey() + " reads " + scannedTables + "\n" + plan);
+                    failures.add(query.getKey());
+                }
+            }
+        } finally {
+            // Not a table of the mapping: dropped with the tables, so that the next check migrates them again
+            new JdbcTemplate(context.getBean(DataSource.class)).execute("DROP TABLE IF EXISTS schema_migrations");
+            context.close();
+        }
+
+        if (!failures.isEmpty()) {
+            System.out.println(failures.size() + " plans read whole tables: " + failures);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, String> getQueries(JdbcTemplate jdbcTemplate, long shopId, long categoryId) {
+        String productIds = jdbcTemplate.queryForList(
+                "SELECT id FROM products WHERE shop_id = ? ORDER BY id", Long.class, shopId
+        ).stream().map(String::valueOf).collect(Collectors.joining(", "));
+        String shopIds = jdbcTemplate.queryForList("SELECT id FROM shops ORDER BY id LIMIT 100", Long.class)
+                .stream().map(String::valueOf).collect(Collectors.joining(", "));
+        String inVacationsCreatedBetween = "s.in_vacations = true "
+                + "AND s.created_at > DATE '2017-01-01' AND s.created_at < DATE '2020-01-01'";
+
+        Map<String, String> queries = new LinkedHashMap<>();
+        // PRODUCTS
+        queries.put("ProductRepository.findByShop",
+                    "SELECT p.* FROM products p LEFT JOIN shops s ON s.id = p.shop_id WHERE p.shop_id = " + shopId
+                            + " LIMIT 20");
+        queries.put("ProductRepository.findByShop (count)",
+                    "SELECT COUNT(p.id) FROM products p WHERE p.shop_id = " + shopId);
+        queries.put("ProductRepository.findByShopAndCategory",
+                    "SELECT p.* FROM products p JOIN products_categories pc ON pc.product_id = p.id "
+                            + "WHERE p.shop_id = " + shopId + " AND pc.category_id = " + categoryId + " LIMIT 20");
+        queries.put("ProductRepository.findByShopIdAndIdGreaterThanOrderByIdAsc",
+                    "SELECT p.* FROM products p WHERE p.shop_id = " + shopId + " AND p.id > 0 ORDER BY p.id LIMIT 21");
+        queries.put("ProductRepository.findByShopIdAndCategoriesIdAndIdGreaterThanOrderByIdAsc",
+                    "SELECT p.* FROM products p JOIN products_categories pc ON pc.product_id = p.id "
+                            + "WHERE p.shop_id = " + shopId + " AND pc.category_id = " + categoryId
+                            + " AND p.id > 0 ORDER BY p.id LIMIT 21");
+        queries.put("ProductRepository.detachFromShop",
+                    "UPDATE products SET shop_id = NULL, version = version + 1 WHERE shop_id = " + shopId);
+        queries.put("ProductRepository.removeCategory",
+                    "DELETE FROM products_categories WHERE category_id = " + categoryId);
+        queries.put("ProductRepository.touchByCategory",
+                    "UPDATE products SET version = version + 1 WHERE id IN "
+                            + "(SELECT pc.product_id FROM products_categories pc WHERE pc.category_id = "
+                            + categoryId + ")");
+        // BATCH FETCHING
+        queries.put("Product.categories",
+                    "SELECT pc.product_id, c.* FROM products_categories pc JOIN categories c ON c.id = pc.category_id "
+                            + "WHERE pc.product_id IN (" + productIds + ")");
+        queries.put("Product.localizedProduct",
+                    "SELECT plp.product_id, lp.* FROM products_localized_product plp "
+                            + "JOIN localized_product lp ON lp.id = plp.localized_product_id "
+                            + "WHERE plp.product_id IN (" + productIds + ")");
+        queries.put("Shop.openingHours",
+                    "SELECT soh.shop_id, oh.* FROM shops_opening_hours soh "
+                            + "JOIN opening_hours oh ON oh.id = soh.opening_hours_id "
+                            + "WHERE soh.shop_id IN (" + shopIds + ")");
+        // SHOPS
+        queries.put("ShopRepository.findPage (inVacations, createdAfter, createdBefore, sortBy=createdAt)",
+                    "SELECT s.* FROM shops s WHERE " + inVacationsCreatedBetween
+                            + " ORDER BY s.created_at, s.id LIMIT 20");
+        queries.put("ShopRepository.findPage (inVacations, createdAfter, createdBefore, count)",
+                    "SELECT COUNT(s.id) FROM shops s WHERE " + inVacationsCreatedBetween);
+        queries.put("ShopRepository.findPage (createdAfter, createdBefore, sortBy=createdAt desc)",
+                    "SELECT s.* FROM shops s WHERE s.created_at > DATE '2017-01-01' "
+                            + "AND s.created_at < DATE '2020-01-01' ORDER BY s.created_at DESC, s.id DESC LIMIT 20");
+        queries.put("ShopRepository.findPage (sortBy=name)",
+                    "SELECT s.* FROM shops s ORDER BY s.name, s.id LIMIT 20");
+        queries.put("ShopRepository.findPage (sortBy=nbProducts)",
+                    "SELECT s.* FROM shops s ORDER BY s.nb_products DESC, s.id DESC LIMIT 20");
+        queries.put("ShopRepository.findPage (sortBy=nbCategories)",
+                    "SELECT s.* FROM shops s ORDER BY s.nb_categories DESC, s.id DESC LIMIT 20");
+        queries.put("ShopRepository.findPage (sortBy=minPrice)",
+                    "SELECT s.* FROM shops s ORDER BY s.min_price, s.id LIMIT 20");
+        queries.put("ShopRepository.findPage (sortBy=avgPrice)",
+                    "SELECT s.* FROM shops s ORDER BY s.avg_price, s.id LIMIT 20");
+        queries.put("ShopRepository.findPage (sortBy=maxPrice)",
+                    "SELECT s.* FROM shops s ORDER BY s.max_price, s.id LIMIT 20");
+        queries.put("ShopStatisticsRepository.findByShopId",
+                    "SELECT s.nb_products, s.min_price, sc.category_id, sc.nb_products FROM shops s "
+                            + "LEFT JOIN shop_categories sc ON sc.shop_id = s.id AND sc.nb_products > 0 "
+                            + "WHERE s.id = " + shopId + " ORDER BY sc.nb_products DESC, sc.category_id");
+        // SHOP COUNTERS
+        queries.put("ShopRepository.addToNbProductsOfCategory",
+                    "UPDATE shop_categories SET nb_products = nb_products + 1 WHERE shop_id = " + shopId
+                            + " AND category_id = " + categoryId);
+        queries.put("ShopRepository.deleteCategoryCounters",
+                    "DELETE FROM shop_categories WHERE category_id = " + categoryId);
+        queries.put("ShopRepository.refreshNbCategories",
+                    "UPDATE shops SET nb_categories = (SELECT COUNT(*) FROM shop_categories sc "
+                            + "WHERE sc.shop_id = shops.id AND sc.nb_products > 0) WHERE id = " + shopId);
+        queries.put("ShopRepository.removeCategory",
+                    "UPDATE shops SET nb_categories = nb_categories - 1 WHERE id IN (SELECT sc.shop_id "
+                            + "FROM shop_categories sc WHERE sc.category_id = " + categoryId
+                            + " AND sc.nb_products > 0)");
+        queries.put("ShopRepository.removeProduct",
+                    "UPDATE shops SET min_price = (SELECT MIN(p.price) FROM products p WHERE p.shop_id = shops.id) "
+                            + "WHERE id = " + shopId);
+        return queries;
+    }
+
+    private static List<String> getScannedTables(String plan) {
+        List<String> tables = new ArrayList<>();
+        Matcher scan = FULL_SCAN.matcher(plan);
+        while (scan.find()) {
+            String table = scan.group(1) != null ? scan.group(1) : scan.group(2);
+            if (LARGE_TABLES.contains(table)) {
+                tables.add(table);
+            }
+        }
+        return tables;
+    }
+}
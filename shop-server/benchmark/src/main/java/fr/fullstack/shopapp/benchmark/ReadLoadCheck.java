@@ -0,0 +1,115 @@
+package fr.fullstack.shopapp.benchmark;
+
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the reads of /api/v1 with the asynchronous ones of /api/v1/async under many concurrent clients and few
+ * request threads: load.concurrency requests are kept in flight against a server of load.tomcat-threads request
+ * threads, and the throughput and latencies of each path are printed. Both paths share the database pool, the
+ * asynchronous one runs the reads on as many threads as the pool has connections.
+ * mvn package exec:exec -Pread-load
+ */
+public class ReadLoadCheck {
+    private static final int NB_IDS = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("load.concurrency", 200);
+        int nbProducts = Integer.getInteger("load.products", 100_000);
+        int nbRequests = Integer.getInteger("load.requests", 20_000);
+        int tomcatThreads = Integer.getInteger("load.tomcat-threads", 8);
+        ConfigurableApplicationContext context = BenchmarkApplication.startWeb(
+                "load", "server.tomcat.threads.max=" + tomcatThreads, "server.tomcat.threads.min-spare=" + tomcatThreads
+        );
+
+        try {
+            DataSource dataSource = context.getBean(DataSource.class);
+            new CatalogSeeder(dataSource).seed(nbProducts);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            List<Long> shopIds = getRandomIds(jdbcTemplate, "shops");
+            List<Long> productIds = getRandomIds(jdbcTemplate, "products");
+            String server = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            System.out.printf("%d requests, %d in flight, %d request threads%n",
+                              nbRequests, concurrency, tomcatThreads);
+            for (String api : List.of("/api/v1", "/api/v1/async")) {
+                List<URI> shopUris = getUris(server + api, id -> "/shops/" + id, shopIds);
+                List<URI> productUris = getUris(server + api, id -> "/products/" + id, productIds);
+                List<URI> productListUris = getUris(server + api, id -> "/products?size=20&shopId=" + id, shopIds);
+                List<URI> shopListUris = getUris(
+                        server + api, id -> "/shops?size=20&sortBy=nbProducts&page=" + id % 50, shopIds
+                );
+
+                for (List<URI> uris : List.of(shopUris, productUris, productListUris, shopListUris)) {
+                    // Warms up the path before it is measured
+                    run(client, uris, nbRequests / 4, concurrency);
+                    System.out.println(run(client, uris, nbRequests, concurrency));
+                }
+            }
+        } finally {
+            new JdbcTemplate(context.getBean(DataSource.class)).execute("DROP TABLE IF EXISTS schema_migrations");
+            context.close();
+        }
+    }
+
+    private static List<Long> getRandomIds(JdbcTemplate jdbcTemplate, String table) {
+        return jdbcTemplate.queryForList("SELECT id FROM " + table + " ORDER BY RAND() LIMIT " + NB_IDS, Long.class);
+    }
+
+    private static List<URI> getUris(String api, Function<Long, String> path, List<Long> ids) {
+        return ids.stream().map(id -> URI.create(api + path.apply(id))).collect(Collectors.toList());
+    }
+
+    private static String run(HttpClient client, List<URI> uris, int nbRequests, int concurrency)
+            throws InterruptedException {
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(nbRequests);
+        Semaphore inFlight = new Semaphore(concurrency);
+        long[] latencies = new long[nbRequests];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < nbRequests; i++) {
+            inFlight.acquire();
+            int index = i;
+            long sentAt = System.nanoTime();
+            client.sendAsync(HttpRequest.newBuilder(uris.get(i % uris.size())).build(),
+                             HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, e) -> {
+                        latencies[index] = System.nanoTime() - sentAt;
+                        if (e != null || response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                        inFlight.release();
+                        done.countDown();
+                    });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        String uri = uris.get(0).getPath().replaceAll("/\\d+$", "/{id}");
+        return String.format("%-32s %8.0f req/s   p50 %7.1f ms   p99 %7.1f ms   %d errors",
+                             uri, nbRequests / (elapsed / 1e9), toMillis(latencies[nbRequests / 2]),
+                             toMillis(latencies[nbRequests * 99 / 100]), errors.get());
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
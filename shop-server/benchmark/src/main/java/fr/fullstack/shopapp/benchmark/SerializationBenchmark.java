@@ -0,0 +1,68 @@
+package fr.fullstack.shopapp.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.fullstack.shopapp.model.Product;
+import fr.fullstack.shopapp.model.Shop;
+import fr.fullstack.shopapp.util.LazyLoading;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the pages returned by the list endpoints. The pages are loaded and fully initialized
+ * once, so that only the serialization is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SerializationBenchmark {
+    @Benchmark
+    public byte[] productPage(Pages pages) throws JsonProcessingException {
+        return pages.objectMapper.writeValueAsBytes(pages.products);
+    }
+
+    @Benchmark
+    public byte[] shopPage(Pages pages) throws JsonProcessingException {
+        return pages.objectMapper.writeValueAsBytes(pages.shops);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Pages {
+        ObjectMapper objectMapper;
+
+        Page<Product> products;
+
+        Page<Shop> shops;
+
+        @Setup(Level.Trial)
+        public void setUp(CatalogState catalog) {
+            objectMapper = catalog.context.getBean(ObjectMapper.class);
+            TransactionTemplate transaction = new TransactionTemplate(
+                    catalog.context.getBean(PlatformTransactionManager.class));
+            transaction.executeWithoutResult(status -> {
+                products = LazyLoading.initializeProducts(
+                        catalog.productRepository.findByOrderByIdAsc(PageRequest.of(0, CatalogState.PAGE_SIZE)));
+                shops = LazyLoading.initializeShops(
+                        catalog.shopRepository.findAll(PageRequest.of(0, CatalogState.PAGE_SIZE, Sort.by("id"))));
+            });
+        }
+    }
+}
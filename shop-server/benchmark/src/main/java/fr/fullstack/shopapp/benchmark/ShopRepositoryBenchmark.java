@@ -0,0 +1,144 @@
+package fr.fullstack.shopapp.benchmark;
+
+import fr.fullstack.shopapp.model.Shop;
+import fr.fullstack.shopapp.pagination.Cursor;
+import fr.fullstack.shopapp.repository.ShopFilter;
+import fr.fullstack.shopapp.repository.ShopOrder;
+import fr.fullstack.shopapp.repository.ShopSort;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ShopRepositoryBenchmark {
+    private static final LocalDate CREATED_AFTER = LocalDate.of(2017, 1, 1);
+
+    private static final LocalDate CREATED_BEFORE = LocalDate.of(2020, 1, 1);
+
+    private static final ShopFilter CREATED_BETWEEN = new ShopFilter(
+            Optional.empty(), Optional.of(CREATED_AFTER), Optional.of(CREATED_BEFORE), Optional.empty()
+    );
+
+    private static final ShopFilter IN_VACATIONS = new ShopFilter(
+            Optional.of(true), Optional.empty(), Optional.empty(), Optional.empty()
+    );
+
+    private static final ShopFilter NO_FILTER = new ShopFilter(
+            Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty()
+    );
+
+    private static final ShopFilter NOT_IN_VACATIONS_CREATED_BETWEEN = new ShopFilter(
+            Optional.of(false), Optional.of(CREATED_AFTER), Optional.of(CREATED_BEFORE), Optional.empty()
+    );
+
+    @Benchmark
+    public List<Shop> findByKeysetNameMiddlePage(CatalogState state, MiddleCursor middle) {
+        return state.shopRepository.findByKeyset(
+                NO_FILTER, ShopOrder.of(ShopSort.NAME), middle.name, CatalogState.PAGE_SIZE + 1
+        );
+    }
+
+    @Benchmark
+    public Page<Shop> findPageByCreatedAtBetween(CatalogState state) {
+        return state.shopRepository.findPage(CREATED_BETWEEN, ShopOrder.of(ShopSort.ID), firstPage());
+    }
+
+    @Benchmark
+    public Page<Shop> findPageByInVacations(CatalogState state) {
+        return state.shopRepository.findPage(IN_VACATIONS, ShopOrder.of(ShopSort.ID), firstPage());
+    }
+
+    @Benchmark
+    public Page<Shop> findPageByInVacationsAndCreatedAtBetween(CatalogState state) {
+        return state.shopRepository.findPage(NOT_IN_VACATIONS_CREATED_BETWEEN, ShopOrder.of(ShopSort.ID), firstPage());
+    }
+
+    @Benchmark
+    public Page<Shop> findPageByInVacationsSortedByName(CatalogState state) {
+        return state.shopRepository.findPage(IN_VACATIONS, ShopOrder.of(ShopSort.NAME), firstPage());
+    }
+
+    @Benchmark
+    public Page<Shop> findPageSortedByCreatedAt(CatalogState state) {
+        return state.shopRepository.findPage(NO_FILTER, ShopOrder.of(ShopSort.CREATED_AT), firstPage());
+    }
+
+    @Benchmark
+    public Page<Shop> findPageSortedById(CatalogState state) {
+        return state.shopRepository.findPage(NO_FILTER, ShopOrder.of(ShopSort.ID), firstPage());
+    }
+
+    @Benchmark
+    public Page<Shop> findPageSortedByIdMiddlePage(CatalogState state) {
+        int nbShops = CatalogSeeder.getNbShops(state.nbProducts);
+        return state.shopRepository.findPage(
+                NO_FILTER,
+                ShopOrder.of(ShopSort.ID),
+                PageRequest.of(state.getMiddlePage(nbShops), CatalogState.PAGE_SIZE)
+        );
+    }
+
+    @Benchmark
+    public Page<Shop> findPageSortedByName(CatalogState state) {
+        return state.shopRepository.findPage(NO_FILTER, ShopOrder.of(ShopSort.NAME), firstPage());
+    }
+
+    @Benchmark
+    public Page<Shop> findPageSortedByNameDesc(CatalogState state) {
+        return state.shopRepository.findPage(
+                NO_FILTER, new ShopOrder(ShopSort.NAME, Sort.Direction.DESC), firstPage()
+        );
+    }
+
+    @Benchmark
+    public Page<Shop> findPageSortedByNbProducts(CatalogState state) {
+        return state.shopRepository.findPage(NO_FILTER, ShopOrder.of(ShopSort.NB_PRODUCTS), firstPage());
+    }
+
+    @Benchmark
+    public Slice<Shop> findSliceByNbProducts(CatalogState state) {
+        return state.shopRepository.findSlice(NO_FILTER, ShopOrder.of(ShopSort.NB_PRODUCTS), firstPage());
+    }
+
+    private static PageRequest firstPage() {
+        return PageRequest.of(0, CatalogState.PAGE_SIZE);
+    }
+
+    /**
+     * Cursor positioned on the shop starting the middle page, sorted by name.
+     */
+    @State(Scope.Benchmark)
+    public static class MiddleCursor {
+        Cursor name;
+
+        @Setup(Level.Trial)
+        public void setUp(CatalogState catalog) {
+            int nbShops = CatalogSeeder.getNbShops(catalog.nbProducts);
+            Shop shop = catalog.shopRepository.findAll(
+                    PageRequest.of(catalog.getMiddlePage(nbShops), CatalogState.PAGE_SIZE, Sort.by("name", "id"))
+            ).getContent().get(0);
+            name = new Cursor("name", shop.getName(), shop.getId(), false);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package fr.fullstack.shopapp.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.fullstack.shopapp.service.ShopCounterService;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Writes products through the API (creation, price and category changes, move to another shop, deletion, import,
+ * deletion of a category) and fails when the statistics of /shops/{id}/stats, updated from each change, differ from
+ * the aggregates of the products, or when a listing sorted by a statistic repeats a shop from one cursor page to the
+ * next. The statistics are compared again after a full rebuild.
+ * mvn package exec:exec -Pshop-statistics
+ */
+public class ShopStatisticsCheck {
+    private static final List<String> SORTS = List.of("nbCategories", "minPrice", "avgPrice", "maxPrice");
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private final List<String> failures = new ArrayList<>();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String server;
+
+    private ShopStatisticsCheck(JdbcTemplate jdbcTemplate, String server) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.server = server;
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConfigurableApplicationContext context = BenchmarkApplication.startWeb("statistics");
+
+        List<String> failures;
+        try {
+            DataSource dataSource = context.getBean(DataSource.class);
+            CatalogSeeder seeder = new CatalogSeeder(dataSource);
+            seeder.seed(1000);
+            long[] ids = seeder.seedShopWithCategory(20);
+            ShopCounterService counterService = context.getBean(ShopCounterService.class);
+            // The seeder inserts the products directly
+            counterService.rebuildCounters();
+
+            ShopStatisticsCheck check = new ShopStatisticsCheck(
+                    new JdbcTemplate(dataSource),
+                    "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api/v1"
+            );
+            check.run(ids[0], ids[1]);
+            counterService.rebuildCounters();
+            check.checkStatistics("rebuild", ids[0]);
+            failures = check.failures;
+        } finally {
+            new JdbcTemplate(context.getBean(DataSource.class)).execute("DROP TABLE IF EXISTS schema_migrations");
+            context.close();
+        }
+
+        if (!failures.isEmpty()) {
+            System.out.println(failures.size() + " checks failed:\n" + String.join("\n", failures));
+            System.exit(1);
+        }
+    }
+
+    private void checkSort(String sort) throws Exception {
+        Set<Long> seen = new HashSet<>();
+        String cursor = null;
+        // Three pages, in the default direction of the sort
+        for (int page = 0; page < 3; page++) {
+            JsonNode body = send("GET", "/shops?paging=cursor&size=5&sortBy=" + sort
+                    + (cursor == null ? "" : "&cursor=" + cursor), null, null);
+            for (JsonNode shop : body.get("content")) {
+                if (!seen.add(shop.get("id").asLong())) {
+                    failures.add("sortBy=" + sort + ": shop " + shop.get("id") + " repeated on page " + page);
+                }
+            }
+            if (body.get("nextCursor").isNull()) {
+                break;
+            }
+            cursor = body.get("nextCursor").asText();
+        }
+        System.out.println("sortBy=" + sort + ": " + seen.size() + " shops");
+    }
+
+    private void checkStatistics(String step, long... shopIds) throws Exception {
+        for (long shopId : shopIds) {
+            JsonNode statistics = send("GET", "/shops/" + shopId + "/stats", null, null);
+            Map<String, Object> expected = jdbcTemplate.queryForMap(
+                    "SELECT COUNT(*) AS nb, COALESCE(MIN(price), 0) AS min_price, COALESCE(MAX(price), 0) AS max_price, "
+                            + "COALESCE(AVG(CAST(price AS double precision)), 0) AS avg_price "
+                            + "FROM products WHERE shop_id = ?", shopId
+            );
+            Map<Long, Long> expectedCategories = new TreeMap<>();
+            jdbcTemplate.query(
+                    "SELECT pc.category_id, COUNT(*) FROM products p "
+                            + "JOIN products_categories pc ON pc.product_id = p.id "
+                            + "WHERE p.shop_id = ? GROUP BY pc.category_id",
+                    row -> {
+                        expectedCategories.put(row.getLong(1), row.getLong(2));
+                    },
+                    shopId
+            );
+            Map<Long, Long> categories = new TreeMap<>();
+            statistics.get("categories").forEach(
+                    category -> categories.put(category.get("id").asLong(), category.get("nbProducts").asLong())
+            );
+
+            boolean matches = statistics.get("nbProducts").asLong() == ((Number) expected.get("nb")).longValue()
+                    && isClose(statistics.get("minPrice").asDouble(), expected.get("min_price"))
+                    && isClose(statistics.get("maxPrice").asDouble(), expected.get("max_price"))
+                    && isClose(statistics.get("avgPrice").asDouble(), expected.get("avg_price"))
+                    && statistics.get("nbCategories").asLong() == expectedCategories.size()
+                    && categories.equals(expectedCategories);
+            System.out.println((matches ? "OK    " : "FAIL  ") + step + ", shop " + shopId + ": " + statistics);
+            if (!matches) {
+                failures.add(step + ", shop " + shopId + ": " + statistics + " instead of " + expected + " "
+                                     + expectedCategories);
+            }
+        }
+    }
+
+    private boolean isClose(double value, Object expected) {
+        return Math.abs(value - ((Number) expected).doubleValue()) < 0.01;
+    }
+
+    private String product(Long id, long shopId, float price, long... categoryIds) {
+        return "{" + (id == null ? "" : "\"id\": " + id + ", ") + "\"price\": " + price
+                + ", \"shop\": {\"id\": " + shopId + "}, \"categories\": ["
+                + Arrays.stream(categoryIds).mapToObj(categoryId -> "{\"id\": " + categoryId + "}")
+                        .collect(Collectors.joining(", "))
+                + "], \"localizedProducts\": [{\"locale\": \"FR\", \"name\": \"Produit\"}]}";
+    }
+
+    private void run(long shopId, long categoryId) throws Exception {
+        long otherShopId = jdbcTemplate.queryForObject(
+                "SELECT MIN(id) FROM shops WHERE id <> ?", Long.class, shopId
+        );
+        long otherCategoryId = jdbcTemplate.queryForObject(
+                "SELECT MIN(id) FROM categories WHERE id <> ?", Long.class, categoryId
+        );
+        checkStatistics("seed", shopId, otherShopId);
+
+        long cheapest = send("POST", "/products", "application/json",
+                             product(null, shopId, 0.01f, categoryId, otherCategoryId)).get("id").asLong();
+        long dearest = send("POST", "/products", "application/json",
+                            product(null, shopId, 99999, otherCategoryId)).get("id").asLong();
+        checkStatistics("creation", shopId);
+        send("PUT", "/products", "application/json", product(dearest, shopId, 50, otherCategoryId));
+        checkStatistics("lower maximum", shopId);
+        send("PUT", "/products", "application/json", product(dearest, shopId, 50, categoryId));
+        checkStatistics("other category", shopId);
+        send("PUT", "/products", "application/json", product(cheapest, otherShopId, 0.02f, otherCategoryId));
+        checkStatistics("other shop", shopId, otherShopId);
+        send("DELETE", "/products/" + cheapest, null, null);
+        checkStatistics("deletion of the minimum", shopId, otherShopId);
+        send("POST", "/products/import?shopId=" + otherShopId, "application/x-ndjson",
+             IntStream.range(0, 5).mapToObj(i -> "{\"price\": " + (1000 + i) + ", \"categories\": [{\"id\": "
+                     + otherCategoryId + "}], \"localizedProducts\": [{\"locale\": \"FR\", \"name\": \"Import\"}]}\n")
+                     .collect(Collectors.joining()));
+        checkStatistics("import", otherShopId);
+        send("DELETE", "/categories/" + otherCategoryId, null, null);
+        checkStatistics("deletion of a category", shopId, otherShopId);
+
+        for (long productId : jdbcTemplate.queryForList(
+                "SELECT id FROM products WHERE shop_id = ?", Long.class, shopId)) {
+            send("DELETE", "/products/" + productId, null, null);
+        }
+        checkStatistics("deletion of all the products", shopId);
+
+        for (String sort : SORTS) {
+            checkSort(sort);
+        }
+    }
+
+    private JsonNode send(String method, String path, String contentType, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(server + path)).method(
+                method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body)
+        );
+        if (contentType != null) {
+            request.header("Content-Type", contentType);
+        }
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            failures.add(method + " " + path + ": " + response.statusCode() + " " + response.body());
+        }
+        return objectMapper.readTree(response.body());
+    }
+}
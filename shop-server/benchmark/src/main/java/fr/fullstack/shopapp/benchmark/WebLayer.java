@@ -0,0 +1,34 @@
+package fr.fullstack.shopapp.benchmark;
+
+import fr.fullstack.shopapp.cache.CacheConfig;
+import fr.fullstack.shopapp.config.AsyncReadConfig;
+import fr.fullstack.shopapp.config.WebSecurityConfig;
+import fr.fullstack.shopapp.controller.AsyncCategoryController;
+import fr.fullstack.shopapp.controller.AsyncProductController;
+import fr.fullstack.shopapp.controller.AsyncShopController;
+import fr.fullstack.shopapp.controller.CategoryController;
+import fr.fullstack.shopapp.controller.ProductController;
+import fr.fullstack.shopapp.controller.ShopController;
+import fr.fullstack.shopapp.management.ManagementOperations;
+import fr.fullstack.shopapp.metrics.HikariMetricsTrackerFactory;
+import fr.fullstack.shopapp.metrics.MetricsConfig;
+import fr.fullstack.shopapp.metrics.MetricsRegistry;
+import fr.fullstack.shopapp.trace.TraceConfig;
+import fr.fullstack.shopapp.trace.TraceSettings;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * The web layer started by BenchmarkApplication.startWeb. Not nested in BenchmarkApplication: Spring would load a
+ * nested configuration class in the contexts without a web server too.
+ */
+@Configuration
+@Import({
+        AsyncCategoryController.class, AsyncProductController.class, AsyncReadConfig.class,
+        AsyncShopController.class, CacheConfig.class, CategoryController.class, HikariMetricsTrackerFactory.class,
+        ManagementOperations.class, MetricsConfig.class, MetricsRegistry.class, ProductController.class,
+        ShopController.class, TraceConfig.class, TraceSettings.class, WebSecurityConfig.class
+})
+class WebLayer {
+}
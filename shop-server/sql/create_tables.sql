@@ -1,6 +1,19 @@
 create table categories (
     id int8 not null,
     name varchar(255) not null,
+    nb_products int8 default 0 not null,
+    updated_at timestamp default CURRENT_TIMESTAMP not null,
+    version int8 default 0 not null,
+    primary key (id)
+);
+
+create table indexing_events (
+    id int8 not null,
+    attempts int4 not null,
+    created_at timestamp not null,
+    entity_id int8 not null,
+    entity_type varchar(16) not null,
+    process_after timestamp not null,
     primary key (id)
 );
 
@@ -24,6 +37,8 @@ create table products (
     id int8 not null,
     price float4 not null,
     shop_id int8,
+    updated_at timestamp default CURRENT_TIMESTAMP not null,
+    version int8 default 0 not null,
     primary key (id)
 );
 
@@ -37,11 +52,27 @@ create table products_localized_product (
     localized_product_id int8 not null
 );
 
+create table shop_categories (
+    shop_id int8 not null references shops (id) on delete cascade,
+    category_id int8 not null references categories (id) on delete cascade,
+    nb_products int8 default 0 not null,
+    primary key (shop_id, category_id)
+);
+
 create table shops (
     id int8 not null,
+    avg_price float8 default 0 not null,
     created_at date not null,
     in_vacations boolean not null,
+    max_price float8 default 0 not null,
+    min_price float8 default 0 not null,
     name varchar(255) not null,
+    nb_categories int8 default 0 not null,
+    nb_products int8 default 0 not null,
+    opening_schedule bytea,
+    total_price float8 default 0 not null,
+    updated_at timestamp default CURRENT_TIMESTAMP not null,
+    version int8 default 0 not null,
     primary key (id)
 );
 
@@ -50,6 +81,12 @@ create table shops_opening_hours (
     opening_hours_id int8 not null
 );
 
+create table table_versions (
+    table_name varchar(64) not null,
+    version int8 default 0 not null,
+    primary key (table_name)
+);
+
 create table translation (
     id int8 not null,
     field_type varchar(255) not null,
@@ -58,6 +95,38 @@ create table translation (
     primary key (id)
 );
 
+create index idx_indexing_events_created_at on indexing_events (created_at);
+
+create index idx_indexing_events_process_after on indexing_events (process_after, id);
+
+create index idx_products_shop_id on products (shop_id, id);
+
+create index idx_products_categories_category_id on products_categories (category_id, product_id);
+
+create index idx_products_categories_product_id on products_categories (product_id, category_id);
+
+create index idx_products_localized_product_product_id on products_localized_product (product_id);
+
+create index idx_shop_categories_category_id on shop_categories (category_id);
+
+create index idx_shops_avg_price on shops (avg_price, id);
+
+create index idx_shops_created_at on shops (created_at, id);
+
+create index idx_shops_in_vacations_created_at on shops (in_vacations, created_at, id);
+
+create index idx_shops_max_price on shops (max_price, id);
+
+create index idx_shops_min_price on shops (min_price, id);
+
+create index idx_shops_name on shops (name, id);
+
+create index idx_shops_nb_categories on shops (nb_categories desc, id desc);
+
+create index idx_shops_nb_products on shops (nb_products, id);
+
+create index idx_shops_opening_hours_shop_id on shops_opening_hours (shop_id);
+
 alter table products_localized_product
 add constraint UK_n8q0vltkv2dgjclj2aqn26l03 unique(localized_product_id);
 
@@ -718,4 +718,27 @@ insert into products_categories (product_id, category_id) values (292, 45);
 
 -- Hibernate Sequence --
 
-create sequence hibernate_sequence start 295 increment 1;
\ No newline at end of file
+-- incremented by blocks of 50 ids (pooled optimizer), the first block starts right after the ids above
+create sequence hibernate_sequence start 344 increment 50;
+-- Shop counters --
+
+insert into shop_categories (shop_id, category_id, nb_products)
+select p.shop_id, pc.category_id, count(*) from products p
+join products_categories pc on pc.product_id = p.id
+where p.shop_id is not null
+group by p.shop_id, pc.category_id;
+
+update shops set
+nb_products = (select count(*) from products p where p.shop_id = shops.id),
+nb_categories = (select count(*) from shop_categories sc where sc.shop_id = shops.id),
+min_price = coalesce((select min(p.price) from products p where p.shop_id = shops.id), 0),
+max_price = coalesce((select max(p.price) from products p where p.shop_id = shops.id), 0),
+avg_price = coalesce((select avg(cast(p.price as double precision)) from products p
+    where p.shop_id = shops.id), 0),
+total_price = coalesce((select sum(cast(p.price as double precision)) from products p
+    where p.shop_id = shops.id), 0);
+
+-- Category counters --
+
+update categories set
+nb_products = (select count(*) from products_categories pc where pc.category_id = categories.id);
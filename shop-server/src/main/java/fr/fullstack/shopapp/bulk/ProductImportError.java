@@ -0,0 +1,20 @@
+package fr.fullstack.shopapp.bulk;
+
+public class ProductImportError {
+    private final long line;
+
+    private final String message;
+
+    public ProductImportError(long line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,26 @@
+package fr.fullstack.shopapp.bulk;
+
+import org.springframework.http.MediaType;
+
+public enum ProductImportFormat {
+    // One product per line, with the JSON of the product creation
+    NDJSON("application/x-ndjson"),
+    // A header line, then one product per line: price, categories (ids separated by |), name_<locale> and
+    // description_<locale> for each locale
+    CSV("text/csv");
+
+    private final MediaType mediaType;
+
+    ProductImportFormat(String mediaType) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+    }
+
+    public static ProductImportFormat fromMediaType(MediaType mediaType) throws Exception {
+        for (ProductImportFormat format : values()) {
+            if (format.mediaType.isCompatibleWith(mediaType)) {
+                return format;
+            }
+        }
+        throw new Exception("Unsupported import format " + mediaType + ", expected application/x-ndjson or text/csv");
+    }
+}
@@ -0,0 +1,183 @@
+package fr.fullstack.shopapp.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import fr.fullstack.shopapp.model.Category;
+import fr.fullstack.shopapp.model.Locale;
+import fr.fullstack.shopapp.model.LocalizedProduct;
+import fr.fullstack.shopapp.model.Product;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Reads the products of an import file line by line, the file is never fully loaded in memory. A line that cannot
+ * be read gives an invalid row, and the reading goes on with the next line. A CSV record goes on over the next lines
+ * while one of its quoted values is open, as a description with line breaks.
+ */
+public class ProductImportReader implements Closeable {
+    private static final CsvMapper CSV_MAPPER = new CsvMapper();
+
+    // Length of a CSV record above which an unclosed quote is no longer followed: the record is reported as invalid and
+    // the reading goes on with the next line
+    private static final int MAX_RECORD_LENGTH = 1 << 20;
+
+    // Columns of the CSV file, read from its first line
+    private CsvSchema csvSchema;
+
+    private final ProductImportFormat format;
+
+    private long line;
+
+    private final ObjectMapper objectMapper;
+
+    private final BufferedReader reader;
+
+    // First line of the last record read
+    private long recordLine;
+
+    public ProductImportReader(InputStream input, ProductImportFormat format, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * The next row of the file, null at its end. The blank lines are skipped.
+     */
+    public ProductImportRow next() throws IOException {
+        String content = nextRecord();
+        if (content != null && format == ProductImportFormat.CSV && csvSchema == null) {
+            csvSchema = readCsvHeader(content);
+            content = nextRecord();
+        }
+        if (content == null) {
+            return null;
+        }
+
+        try {
+            Product product = format == ProductImportFormat.NDJSON
+                    ? objectMapper.readValue(content, Product.class)
+                    : readCsvProduct(content);
+            return ProductImportRow.valid(recordLine, product);
+        } catch (JsonProcessingException e) {
+            return ProductImportRow.invalid(recordLine, e.getOriginalMessage());
+        } catch (IllegalArgumentException e) {
+            return ProductImportRow.invalid(recordLine, e.getMessage());
+        }
+    }
+
+    private int countQuotes(String content) {
+        int quotes = 0;
+        for (int i = 0; i < content.length(); i++) {
+            if (content.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes;
+    }
+
+    private String nextLine() throws IOException {
+        String content;
+        do {
+            content = reader.readLine();
+            line++;
+        } while (content != null && content.isBlank());
+        return content;
+    }
+
+    private String nextRecord() throws IOException {
+        String content = nextLine();
+        recordLine = line;
+        if (content == null || format != ProductImportFormat.CSV) {
+            return content;
+        }
+
+        // An escaped quote counts twice: a quoted value is open while the number of quotes is odd. Its blank lines
+        // belong to the value.
+        StringBuilder record = new StringBuilder(content);
+        int quotes = countQuotes(content);
+        while (quotes % 2 == 1 && record.length() <= MAX_RECORD_LENGTH) {
+            String next = reader.readLine();
+            if (next == null) {
+                break;
+            }
+            line++;
+            record.append('\n').append(next);
+            quotes += countQuotes(next);
+        }
+        return record.toString();
+    }
+
+    private long readCategoryId(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The category id " + value + " is not a number");
+        }
+    }
+
+    private CsvSchema readCsvHeader(String content) throws IOException {
+        // Without schema, a line is read as an array of values
+        String[] columns = CSV_MAPPER.readerFor(String[].class).readValue(content);
+        CsvSchema.Builder schema = CsvSchema.builder();
+        for (String column : columns) {
+            schema.addColumn(column.trim());
+        }
+        return schema.build();
+    }
+
+    private Product readCsvProduct(String content) throws IOException {
+        Map<String, String> values = CSV_MAPPER.readerFor(Map.class).with(csvSchema).readValue(content);
+        Product product = new Product();
+        product.setPrice(readPrice(values.get("price")));
+
+        String categories = values.get("categories");
+        if (categories != null && !categories.isBlank()) {
+            for (String id : categories.split("\\|")) {
+                Category category = new Category();
+                category.setId(readCategoryId(id));
+                product.getCategories().add(category);
+            }
+        }
+
+        for (Locale locale : Locale.values()) {
+            String suffix = "_" + locale.name().toLowerCase();
+            String name = values.get("name" + suffix);
+            String description = values.get("description" + suffix);
+            if ((name == null || name.isBlank()) && (description == null || description.isBlank())) {
+                continue;
+            }
+
+            LocalizedProduct localizedProduct = new LocalizedProduct();
+            localizedProduct.setLocale(locale.name());
+            localizedProduct.setName(name == null || name.isBlank() ? null : name);
+            localizedProduct.setDescription(description == null || description.isBlank() ? null : description);
+            product.getLocalizedProducts().add(localizedProduct);
+        }
+        return product;
+    }
+
+    private float readPrice(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("The price is missing");
+        }
+        try {
+            return Float.parseFloat(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The price " + value + " is not a number");
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package fr.fullstack.shopapp.bulk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ProductImportReport {
+    // Only the first errors are detailed, a whole file of invalid lines must not make a huge report
+    private static final int MAX_ERRORS = 1000;
+
+    private final List<ProductImportError> errors = new ArrayList<>();
+
+    private long nbErrors;
+
+    private long nbImported;
+
+    public void addError(long line, String message) {
+        nbErrors++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new ProductImportError(line, message));
+        }
+    }
+
+    public void addImported(long count) {
+        nbImported += count;
+    }
+
+    public List<ProductImportError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    public long getNbErrors() {
+        return nbErrors;
+    }
+
+    public long getNbImported() {
+        return nbImported;
+    }
+}
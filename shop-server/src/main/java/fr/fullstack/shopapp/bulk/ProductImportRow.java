@@ -0,0 +1,44 @@
+package fr.fullstack.shopapp.bulk;
+
+import fr.fullstack.shopapp.model.Product;
+
+/**
+ * A line of an import file, with either the product read or the reason why it could not be read.
+ */
+public class ProductImportRow {
+    private final String error;
+
+    private final long line;
+
+    private final Product product;
+
+    private ProductImportRow(long line, Product product, String error) {
+        this.line = line;
+        this.product = product;
+        this.error = error;
+    }
+
+    public static ProductImportRow invalid(long line, String error) {
+        return new ProductImportRow(line, null, error);
+    }
+
+    public static ProductImportRow valid(long line, Product product) {
+        return new ProductImportRow(line, product, null);
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public boolean isValid() {
+        return product != null;
+    }
+}
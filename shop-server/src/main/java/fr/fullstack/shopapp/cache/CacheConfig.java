@@ -0,0 +1,60 @@
+package fr.fullstack.shopapp.cache;
+
+import fr.fullstack.shopapp.datasource.ReplicaRoutingDataSource;
+import fr.fullstack.shopapp.metrics.MetricsRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.persistence.SharedCacheMode;
+import java.time.Duration;
+
+/**
+ * Second-level cache of the reference entities (categories, opening hours, localized products) and of the collections
+ * pointing to them. Each region is bounded by shop.cache.max-entries entries and expires them after shop.cache.ttl,
+ * both overridden per region by shop.cache.regions.[region].max-entries and .ttl.
+ */
+@Configuration
+public class CacheConfig {
+    @Autowired
+    private Environment environment;
+
+    @Value("${shop.cache.max-entries:10000}")
+    private long maxEntries;
+
+    @Autowired
+    private MetricsRegistry registry;
+
+    // The replicas may lag behind the primary, what is read from them is not kept long
+    @Value("${shop.cache.replica-ttl:5s}")
+    private Duration replicaTtl;
+
+    @Value("${shop.cache.ttl:10m}")
+    private Duration ttl;
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer() {
+        boolean replicas = environment.containsProperty("shop.datasource.replicas.urls");
+        LocalRegionFactory regionFactory = new LocalRegionFactory(
+                this::getRegionSettings, registry, () -> replicas && ReplicaRoutingDataSource.isReadingFromReplica(),
+                replicaTtl
+        );
+        return properties -> {
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, regionFactory);
+            properties.put(AvailableSettings.JPA_SHARED_CACHE_MODE, SharedCacheMode.ENABLE_SELECTIVE);
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+        };
+    }
+
+    private RegionSettings getRegionSettings(String region) {
+        String prefix = "shop.cache.regions." + region + ".";
+        return new RegionSettings(
+                environment.getProperty(prefix + "max-entries", Long.class, maxEntries),
+                environment.getProperty(prefix + "ttl", Duration.class, ttl)
+        );
+    }
+}
@@ -0,0 +1,21 @@
+package fr.fullstack.shopapp.cache;
+
+/**
+ * Regions of the second-level cache, sized and expired by shop.cache.regions.[region].max-entries and .ttl.
+ */
+public class CacheRegions {
+    public static final String CATEGORIES = "categories";
+
+    public static final String LOCALIZED_PRODUCTS = "localized-products";
+
+    public static final String OPENING_HOURS = "opening-hours";
+
+    public static final String PRODUCT_CATEGORIES = "product-categories";
+
+    public static final String PRODUCT_LOCALIZED_PRODUCTS = "product-localized-products";
+
+    public static final String SHOP_OPENING_HOURS = "shop-opening-hours";
+
+    private CacheRegions() {
+    }
+}
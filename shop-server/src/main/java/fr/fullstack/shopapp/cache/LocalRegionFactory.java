@@ -0,0 +1,80 @@
+package fr.fullstack.shopapp.cache;
+
+import fr.fullstack.shopapp.metrics.MetricsRegistry;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Second-level cache of Hibernate in the memory of each instance: the regions are kept by {@link LocalStorageAccess}
+ * and Hibernate keeps them consistent with the writes of this instance. The timestamps region, against which the
+ * cached queries are checked, is never evicted.
+ */
+public class LocalRegionFactory extends RegionFactoryTemplate {
+    private final BooleanSupplier readingFromReplica;
+
+    private final MetricsRegistry registry;
+
+    private final long replicaTtlNanos;
+
+    private final Function<String, RegionSettings> settings;
+
+    public LocalRegionFactory(Function<String, RegionSettings> settings, MetricsRegistry registry,
+                              BooleanSupplier readingFromReplica, Duration replicaTtl) {
+        this.settings = settings;
+        this.registry = registry;
+        this.readingFromReplica = readingFromReplica;
+        this.replicaTtlNanos = replicaTtl.toNanos();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                    DomainDataRegionBuildingContext buildingContext) {
+        return createStorage(regionConfig.getRegionName(), settings.apply(regionConfig.getRegionName()));
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+                                                                  SessionFactoryImplementor sessionFactory) {
+        return createStorage(regionName, settings.apply(regionName));
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+                                                                SessionFactoryImplementor sessionFactory) {
+        // An expired timestamp would let a cached query miss the changes of its tables
+        return createStorage(regionName, new RegionSettings(Long.MAX_VALUE, Duration.ZERO));
+    }
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map configValues) {
+    }
+
+    @Override
+    protected void releaseFromUse() {
+    }
+
+    private LocalStorageAccess createStorage(String regionName, RegionSettings regionSettings) {
+        String labels = MetricsRegistry.labels("region", regionName);
+        LocalStorageAccess storage = new LocalStorageAccess(
+                regionSettings, readingFromReplica, replicaTtlNanos,
+                registry.getCounter("hibernate_cache_hits_total", "Entries found in the second-level cache", labels),
+                registry.getCounter("hibernate_cache_misses_total", "Entries not found in the second-level cache",
+                                    labels),
+                registry.getCounter("hibernate_cache_evictions_total",
+                                    "Entries evicted from the second-level cache to make room", labels)
+        );
+        registry.registerGauge("hibernate_cache_entries", "Entries of the second-level cache", labels,
+                               storage::getSize);
+        return storage;
+    }
+}
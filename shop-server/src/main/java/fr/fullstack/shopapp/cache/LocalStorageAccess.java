@@ -0,0 +1,129 @@
+package fr.fullstack.shopapp.cache;
+
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Entries of a region, in the memory of this instance: the least recently used ones are evicted beyond the maximum
+ * and each one expires after the time to live of the region. The entries loaded from a replica, which may lag behind
+ * the primary, expire after the replica time to live when it is shorter.
+ */
+public class LocalStorageAccess implements DomainDataStorageAccess {
+    // In access order, guarded by this
+    private final Map<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+            if (size() > maxEntries) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final LongAdder evictions;
+
+    private final LongAdder hits;
+
+    private final long maxEntries;
+
+    private final LongAdder misses;
+
+    private final BooleanSupplier readingFromReplica;
+
+    private final long replicaTtlNanos;
+
+    private final long ttlNanos;
+
+    /**
+     * @param readingFromReplica whether the current transaction reads from a replica
+     */
+    public LocalStorageAccess(RegionSettings settings, BooleanSupplier readingFromReplica, long replicaTtlNanos,
+                              LongAdder hits, LongAdder misses, LongAdder evictions) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.maxEntries = settings.getMaxEntries();
+        this.readingFromReplica = readingFromReplica;
+        this.replicaTtlNanos = replicaTtlNanos;
+        this.ttlNanos = settings.getTtl().toNanos();
+    }
+
+    @Override
+    public synchronized boolean contains(Object key) {
+        Entry entry = entries.get(key);
+        return entry != null && !entry.isExpired(System.nanoTime());
+    }
+
+    @Override
+    public synchronized void evictData() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized void evictData(Object key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+        Object value = null;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.isExpired(System.nanoTime())) {
+                entries.remove(key);
+            } else if (entry != null) {
+                value = entry.value;
+            }
+        }
+
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    @Override
+    public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+        long ttl = ttlNanos;
+        if (readingFromReplica.getAsBoolean() && (ttl == 0 || replicaTtlNanos < ttl)) {
+            ttl = replicaTtlNanos;
+        }
+        Entry entry = new Entry(value, ttl == 0 ? Long.MAX_VALUE : System.nanoTime() + ttl);
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+    }
+
+    @Override
+    public void release() {
+        evictData();
+    }
+
+    private static class Entry {
+        private final long expiresAt;
+
+        private final Object value;
+
+        private Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            // Compared by difference, nanoTime may overflow
+            return expiresAt != Long.MAX_VALUE && now - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package fr.fullstack.shopapp.cache;
+
+import java.time.Duration;
+
+/**
+ * Maximum number of entries of a region, the least recently used ones are evicted beyond it, and time to live of its
+ * entries (none when zero).
+ */
+public class RegionSettings {
+    private final long maxEntries;
+
+    private final Duration ttl;
+
+    public RegionSettings(long maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+}
@@ -0,0 +1,55 @@
+package fr.fullstack.shopapp.config;
+
+import fr.fullstack.shopapp.datasource.ReadYourWritesTaskDecorator;
+import fr.fullstack.shopapp.metrics.RequestStatisticsTaskDecorator;
+import fr.fullstack.shopapp.trace.TraceSamplingTaskDecorator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Executor of the asynchronous read API (/api/v1/async): the request threads hand the reads over to it and are
+ * released until the response is ready. Its threads wait for the connections of the pool, so it is sized like the
+ * pool; the reads beyond the queue are refused with a 503 instead of waiting. The lists and the multi-gets build
+ * their whole result, bounded by the size of a page or the number of ids, before it is written: only the NDJSON
+ * exports are streamed.
+ */
+@Configuration
+public class AsyncReadConfig implements WebMvcConfigurer {
+    @Value("${shop.async-reads.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${shop.async-reads.threads:10}")
+    private int threads;
+
+    @Value("${shop.async-reads.timeout:30s}")
+    private Duration timeout;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // Also runs the streamed responses
+        configurer.setTaskExecutor(readExecutor());
+        configurer.setDefaultTimeout(timeout.toMillis());
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor readExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        ReadYourWritesTaskDecorator readYourWrites = new ReadYourWritesTaskDecorator();
+        RequestStatisticsTaskDecorator requestStatistics = new RequestStatisticsTaskDecorator();
+        TraceSamplingTaskDecorator traceSampling = new TraceSamplingTaskDecorator();
+        executor.setTaskDecorator(
+                task -> readYourWrites.decorate(requestStatistics.decorate(traceSampling.decorate(task)))
+        );
+        executor.setThreadNamePrefix("read-");
+        return executor;
+    }
+}
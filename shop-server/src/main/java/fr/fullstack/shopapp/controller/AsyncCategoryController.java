@@ -0,0 +1,87 @@
+package fr.fullstack.shopapp.controller;
+
+import fr.fullstack.shopapp.metrics.StatementBudget;
+import fr.fullstack.shopapp.model.Category;
+import fr.fullstack.shopapp.pagination.MultiGetResult;
+import fr.fullstack.shopapp.service.CategoryService;
+import fr.fullstack.shopapp.util.AsyncReads;
+import io.swagger.annotations.ApiImplicitParam;
+import io.swagger.annotations.ApiImplicitParams;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Reads of /api/v1/categories run on the read executor. They are served by the category catalog, but its first load
+ * goes to the database.
+ */
+@RestController
+@RequestMapping("/api/v1/async/categories")
+public class AsyncCategoryController {
+    @Autowired
+    @Qualifier("readExecutor")
+    private Executor readExecutor;
+
+    @Autowired
+    private CategoryService service;
+
+    @ApiOperation(value = "Get categories", notes = AsyncReads.NOT_STREAMED)
+    @GetMapping
+    @StatementBudget(2)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "page",
+                              dataType = "integer",
+                              paramType = "query",
+                              value = "Results page you want to retrieve (0..N)",
+                              defaultValue = "0"),
+            @ApiImplicitParam(name = "size", dataType = "integer", paramType = "query",
+                              value = "Number of records per page", defaultValue = "5"),
+    })
+    public CompletableFuture<ResponseEntity<Page<Category>>> getAllCategories(
+            Pageable pageable,
+            HttpServletRequest request
+    ) {
+        return AsyncReads.supply(readExecutor, () -> AsyncReads.whenModified(
+                request, service.getCategoryListVersion(), () -> service.getCategoryList(pageable)
+        ));
+    }
+
+    @ApiOperation(value = "Get categories by their ids, in the order of the ids, with the ids that were not found",
+                  notes = AsyncReads.NOT_STREAMED)
+    @GetMapping(params = "ids")
+    @StatementBudget(2)
+    public CompletableFuture<ResponseEntity<MultiGetResult<Category>>> getCategoriesByIds(
+            @ApiParam(value = "Ids of the categories (500 at most)", example = "1,2") @RequestParam List<Long> ids,
+            HttpServletRequest request
+    ) {
+        return AsyncReads.supply(readExecutor, () -> AsyncReads.whenModified(
+                request, service.getCategoryListVersion(), () -> service.getCategoriesByIds(ids)
+        ));
+    }
+
+    @ApiOperation(value = "Get a category by id")
+    @GetMapping("/{id}")
+    @StatementBudget(2)
+    public CompletableFuture<ResponseEntity<Category>> getCategoryById(
+            @PathVariable long id,
+            HttpServletRequest request
+    ) {
+        return AsyncReads.supply(readExecutor, () -> AsyncReads.whenModified(
+                request, service.getCategoryVersion(id), () -> service.getCategoryById(id)
+        ));
+    }
+}
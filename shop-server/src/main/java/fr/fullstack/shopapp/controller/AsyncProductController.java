@@ -0,0 +1,110 @@
+package fr.fullstack.shopapp.controller;
+
+import fr.fullstack.shopapp.metrics.StatementBudget;
+import fr.fullstack.shopapp.model.Product;
+import fr.fullstack.shopapp.pagination.MultiGetResult;
+import fr.fullstack.shopapp.service.CatalogExportService;
+import fr.fullstack.shopapp.service.ProductService;
+import fr.fullstack.shopapp.util.AsyncReads;
+import fr.fullstack.shopapp.util.CompressedResponses;
+import io.swagger.annotations.ApiImplicitParam;
+import io.swagger.annotations.ApiImplicitParams;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Reads of /api/v1/products run on the read executor, the request threads are not blocked by the database.
+ */
+@RestController
+@RequestMapping("/api/v1/async/products")
+public class AsyncProductController {
+    @Autowired
+    private CatalogExportService exportService;
+
+    @Autowired
+    @Qualifier("readExecutor")
+    private Executor readExecutor;
+
+    @Autowired
+    private ProductService service;
+
+    @ApiOperation(value = "Export every product as NDJSON, with its shop, categories and localized names "
+            + "(gzip if accepted)")
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public StreamingResponseBody exportProducts(HttpServletRequest request, HttpServletResponse response) {
+        // Written by the read executor, as the lines are read
+        return body -> {
+            try (OutputStream output = CompressedResponses.open(request, response, "application/x-ndjson")) {
+                exportService.exportProducts(output);
+            }
+        };
+    }
+
+    @ApiOperation(value = "Get a product by id")
+    @GetMapping("/{id}")
+    @StatementBudget(6)
+    public CompletableFuture<ResponseEntity<Product>> getProductById(
+            @PathVariable long id,
+            HttpServletRequest request
+    ) {
+        return AsyncReads.supply(readExecutor, () -> AsyncReads.whenModified(
+                request, service.getProductVersion(id), () -> service.getProductById(id)
+        ));
+    }
+
+    @ApiOperation(value = "Get products by their ids, in the order of the ids, with the ids that were not found",
+                  notes = AsyncReads.NOT_STREAMED)
+    @GetMapping(params = "ids")
+    @StatementBudget(8)
+    public CompletableFuture<ResponseEntity<MultiGetResult<Product>>> getProductsByIds(
+            @ApiParam(value = "Ids of the products (500 at most)", example = "1,2") @RequestParam List<Long> ids,
+            HttpServletRequest request
+    ) {
+        return AsyncReads.supply(readExecutor, () -> AsyncReads.whenModified(
+                request, service.getProductListVersion(), () -> service.getProductsByIds(ids)
+        ));
+    }
+
+    @ApiOperation(value = "Get products (filtering by shop and category is possible)", notes = AsyncReads.NOT_STREAMED)
+    @GetMapping
+    @StatementBudget(12)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "page",
+                              dataType = "integer",
+                              paramType = "query",
+                              value = "Results page you want to retrieve (0..N)",
+                              defaultValue = "0"),
+            @ApiImplicitParam(name = "size", dataType = "integer", paramType = "query",
+                              value = "Number of records per page", defaultValue = "5"),
+    })
+    public CompletableFuture<ResponseEntity<Page<Product>>> getProductsOfShop(
+            Pageable pageable,
+            @ApiParam(value = "Id of the shop", example = "1") @RequestParam(required = false) Optional<Long> shopId,
+            @ApiParam(value = "Id of the category", example = "1") @RequestParam(required = false)
+            Optional<Long> categoryId,
+            HttpServletRequest request
+    ) {
+        return AsyncReads.supply(readExecutor, () -> AsyncReads.whenModified(
+                request, service.getProductListVersion(), () -> service.getShopProductList(shopId, categoryId, pageable)
+        ));
+    }
+}
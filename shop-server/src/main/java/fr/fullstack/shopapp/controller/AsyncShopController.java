@@ -0,0 +1,137 @@
+package fr.fullstack.shopapp.controller;
+
+import fr.fullstack.shopapp.metrics.StatementBudget;
+import fr.fullstack.shopapp.model.Shop;
+import fr.fullstack.shopapp.pagination.MultiGetResult;
+import fr.fullstack.shopapp.repository.ShopStatistics;
+import fr.fullstack.shopapp.service.CatalogExportService;
+import fr.fullstack.shopapp.service.ShopService;
+import fr.fullstack.shopapp.util.AsyncReads;
+import fr.fullstack.shopapp.util.CompressedResponses;
+import io.swagger.annotations.ApiImplicitParam;
+import io.swagger.annotations.ApiImplicitParams;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Reads of /api/v1/shops run on the read executor, the request threads are not blocked by the database.
+ */
+@RestController
+@RequestMapping("/api/v1/async/shops")
+public class AsyncShopController {
+    @Autowired
+    private CatalogExportService exportService;
+
+    @Autowired
+    @Qualifier("readExecutor")
+    private Executor readExecutor;
+
+    @Autowired
+    private ShopService service;
+
+    @ApiOperation(value = "Export every shop as NDJSON, with its opening hours (gzip if accepted)")
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public StreamingResponseBody exportShops(HttpServletRequest request, HttpServletResponse response) {
+        // Written by the read executor, as the lines are read
+        return body -> {
+            try (OutputStream output = CompressedResponses.open(request, response, "application/x-ndjson")) {
+                exportService.exportShops(output);
+            }
+        };
+    }
+
+    @ApiOperation(value = "Get shops (sorting and filtering are possible)", notes = AsyncReads.NOT_STREAMED)
+    @GetMapping
+    @StatementBudget(6)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "page",
+                              dataType = "integer",
+                              paramType = "query",
+                              value = "Results page you want to retrieve (0..N)",
+                              defaultValue = "0"),
+            @ApiImplicitParam(name = "size", dataType = "integer", paramType = "query",
+                              value = "Number of records per page", defaultValue = "5"),
+    })
+    public CompletableFuture<ResponseEntity<Page<Shop>>> getAllShops(
+            Pageable pageable,
+            @ApiParam(value = "To sort the shops. Possible values are 'id', 'name', 'nbProducts', 'nbCategories', "
+                              + "'minPrice', 'avgPrice', 'maxPrice' and 'createdAt'",
+                      example = "name")
+            @RequestParam(required = false) Optional<String> sortBy,
+            @ApiParam(value = "Direction of the sort, 'asc' or 'desc' (by default 'desc' for 'nbProducts' and "
+                              + "'nbCategories' only)",
+                      example = "desc")
+            @RequestParam(required = false) Optional<String> sortDirection,
+            @ApiParam(value = "Define that the shops must be in vacations or not", example = "true")
+            @RequestParam(required = false) Optional<Boolean> inVacations,
+            @ApiParam(value = "Define that the shops must be created after this date", example = "2022-11-15")
+            @RequestParam(required = false) Optional<String> createdAfter,
+            @ApiParam(value = "Define that the shops must be created before this date", example = "2022-11-15")
+            @RequestParam(required = false) Optional<String> createdBefore,
+            @ApiParam(value = "Define that the shops must be open at this day (1 for monday to 7) and time",
+                      example = "1,09:30")
+            @RequestParam(required = false) Optional<String> openAt,
+            @ApiParam(value = "Define that the shops must be open now", example = "true")
+            @RequestParam(required = false) Optional<Boolean> openNow,
+            HttpServletRequest request
+    ) {
+        return AsyncReads.supply(readExecutor, () -> AsyncReads.whenModified(
+                request, service.getShopListVersion(openAt, openNow), () -> service.getShopList(
+                        sortBy, sortDirection, inVacations, createdAfter, createdBefore, openAt, openNow, pageable
+                )
+        ));
+    }
+
+    @ApiOperation(value = "Get a shop by id")
+    @GetMapping("/{id}")
+    @StatementBudget(4)
+    public CompletableFuture<ResponseEntity<Shop>> getShopById(@PathVariable long id, HttpServletRequest request) {
+        return AsyncReads.supply(readExecutor, () -> AsyncReads.whenModified(
+                request, service.getShopVersion(id), () -> service.getShopById(id)
+        ));
+    }
+
+    @ApiOperation(value = "Get the statistics of the products of a shop: counts, prices and products by category")
+    @GetMapping("/{id}/stats")
+    @StatementBudget(3)
+    public CompletableFuture<ResponseEntity<ShopStatistics>> getShopStatistics(
+            @PathVariable long id,
+            HttpServletRequest request
+    ) {
+        return AsyncReads.supply(readExecutor, () -> AsyncReads.whenModified(
+                request, service.getShopStatisticsVersion(id), () -> service.getShopStatistics(id)
+        ));
+    }
+
+    @ApiOperation(value = "Get shops by their ids, in the order of the ids, with the ids that were not found",
+                  notes = AsyncReads.NOT_STREAMED)
+    @GetMapping(params = "ids")
+    @StatementBudget(4)
+    public CompletableFuture<ResponseEntity<MultiGetResult<Shop>>> getShopsByIds(
+            @ApiParam(value = "Ids of the shops (500 at most)", example = "1,2") @RequestParam List<Long> ids,
+            HttpServletRequest request
+    ) {
+        return AsyncReads.supply(readExecutor, () -> AsyncReads.whenModified(
+                request, service.getShopListVersion(), () -> service.getShopsByIds(ids)
+        ));
+    }
+}
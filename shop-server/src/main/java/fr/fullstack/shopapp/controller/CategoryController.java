@@ -1,14 +1,19 @@
 package fr.fullstack.shopapp.controller;
 
+import fr.fullstack.shopapp.metrics.StatementBudget;
 import fr.fullstack.shopapp.model.Category;
+import fr.fullstack.shopapp.pagination.MultiGetResult;
 import fr.fullstack.shopapp.service.CategoryService;
+import fr.fullstack.shopapp.util.ConditionalRequests;
 import fr.fullstack.shopapp.util.ErrorValidation;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiImplicitParams;
 import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.Errors;
@@ -19,10 +24,13 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/categories")
@@ -59,6 +67,7 @@ public class CategoryController {
 
     @ApiOperation(value = "Get categories")
     @GetMapping
+    @StatementBudget(2)
     @ApiImplicitParams({
             @ApiImplicitParam(name = "page",
                               dataType = "integer",
@@ -68,14 +77,83 @@ public class CategoryController {
             @ApiImplicitParam(name = "size", dataType = "integer", paramType = "query",
                               value = "Number of records per page", defaultValue = "5"),
     })
-    public ResponseEntity<Page<Category>> getAllCategories(Pageable pageable) {
+    public ResponseEntity<Page<Category>> getAllCategories(Pageable pageable, WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, service.getCategoryListVersion())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
         return ResponseEntity.ok(service.getCategoryList(pageable));
     }
 
+    @ApiOperation(value = "Get categories with an estimated total")
+    @GetMapping(params = "paging=estimate")
+    @StatementBudget(2)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "paging", dataType = "string", paramType = "query", required = true,
+                              value = "Estimated total", allowableValues = "estimate"),
+            @ApiImplicitParam(name = "page",
+                              dataType = "integer",
+                              paramType = "query",
+                              value = "Results page you want to retrieve (0..N)",
+                              defaultValue = "0"),
+            @ApiImplicitParam(name = "size", dataType = "integer", paramType = "query",
+                              value = "Number of records per page", defaultValue = "5"),
+    })
+    public ResponseEntity<Page<Category>> getAllCategoriesWithEstimatedTotal(Pageable pageable, WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, service.getCategoryListVersion())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        return ResponseEntity.ok(service.getCategoryListWithEstimatedTotal(pageable));
+    }
+
+    @ApiOperation(value = "Get categories without total")
+    @GetMapping(params = "paging=slice")
+    @StatementBudget(2)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "paging", dataType = "string", paramType = "query", required = true,
+                              value = "No total", allowableValues = "slice"),
+            @ApiImplicitParam(name = "page",
+                              dataType = "integer",
+                              paramType = "query",
+                              value = "Results page you want to retrieve (0..N)",
+                              defaultValue = "0"),
+            @ApiImplicitParam(name = "size", dataType = "integer", paramType = "query",
+                              value = "Number of records per page", defaultValue = "5"),
+    })
+    public ResponseEntity<Slice<Category>> getAllCategoriesWithoutTotal(Pageable pageable, WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, service.getCategoryListVersion())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        return ResponseEntity.ok(service.getCategorySlice(pageable));
+    }
+
+    @ApiOperation(value = "Get categories by their ids, in the order of the ids, with the ids that were not found")
+    @GetMapping(params = "ids")
+    @StatementBudget(2)
+    public ResponseEntity<MultiGetResult<Category>> getCategoriesByIds(
+            @ApiParam(value = "Ids of the categories (500 at most)", example = "1,2") @RequestParam List<Long> ids,
+            WebRequest request
+    ) {
+        try {
+            if (ConditionalRequests.isNotModified(request, service.getCategoryListVersion())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+            return ResponseEntity.ok(service.getCategoriesByIds(ids));
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     @ApiOperation(value = "Get a category by id")
     @GetMapping("/{id}")
-    public ResponseEntity<Category> getCategoryById(@PathVariable long id) {
+    @StatementBudget(2)
+    public ResponseEntity<Category> getCategoryById(@PathVariable long id, WebRequest request) {
         try {
+            if (ConditionalRequests.isNotModified(request, service.getCategoryVersion(id))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
             return ResponseEntity.ok().body(service.getCategoryById(id));
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
@@ -0,0 +1,41 @@
+package fr.fullstack.shopapp.controller;
+
+import fr.fullstack.shopapp.search.IndexingStatus;
+import fr.fullstack.shopapp.search.ReindexStatus;
+import fr.fullstack.shopapp.service.IndexingOutboxService;
+import fr.fullstack.shopapp.service.ReindexService;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/v1/indexing")
+public class IndexingController {
+
+    @Autowired
+    private ReindexService reindexService;
+
+    @Autowired
+    private IndexingOutboxService service;
+
+    @ApiOperation(value = "Get the progress of the last reindexing")
+    @GetMapping("/reindex")
+    public ResponseEntity<ReindexStatus> getReindexStatus() {
+        try {
+            return ResponseEntity.ok(reindexService.getStatus());
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @ApiOperation(value = "Get the changes waiting to be indexed and the indexing lag")
+    @GetMapping("/status")
+    public ResponseEntity<IndexingStatus> getStatus() {
+        return ResponseEntity.ok(service.getStatus());
+    }
+}
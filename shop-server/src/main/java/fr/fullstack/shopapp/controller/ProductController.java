@@ -1,7 +1,17 @@
 package fr.fullstack.shopapp.controller;
 
+import fr.fullstack.shopapp.bulk.ProductImportFormat;
+import fr.fullstack.shopapp.bulk.ProductImportReport;
+import fr.fullstack.shopapp.metrics.StatementBudget;
 import fr.fullstack.shopapp.model.Product;
+import fr.fullstack.shopapp.pagination.CursorPage;
+import fr.fullstack.shopapp.pagination.MultiGetResult;
+import fr.fullstack.shopapp.search.ProductSearchPage;
+import fr.fullstack.shopapp.service.CatalogExportService;
+import fr.fullstack.shopapp.service.ProductImportService;
 import fr.fullstack.shopapp.service.ProductService;
+import fr.fullstack.shopapp.util.CompressedResponses;
+import fr.fullstack.shopapp.util.ConditionalRequests;
 import fr.fullstack.shopapp.util.ErrorValidation;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiImplicitParams;
@@ -10,7 +20,10 @@ import io.swagger.annotations.ApiParam;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.Errors;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -19,17 +32,30 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1/products")
 public class ProductController {
+    @Autowired
+    private CatalogExportService exportService;
+
+    @Autowired
+    private ProductImportService importService;
 
     @Autowired
     private ProductService service;
@@ -60,18 +86,48 @@ public class ProductController {
         }
     }
 
+    @ApiOperation(value = "Export every product as NDJSON, with its shop, categories and localized names (gzip if accepted)")
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public void exportProducts(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (OutputStream output = CompressedResponses.open(request, response, "application/x-ndjson")) {
+            exportService.exportProducts(output);
+        }
+    }
+
     @ApiOperation(value = "Get a product by id")
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable long id) {
+    @StatementBudget(6)
+    public ResponseEntity<Product> getProductById(@PathVariable long id, WebRequest request) {
         try {
+            if (ConditionalRequests.isNotModified(request, service.getProductVersion(id))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
             return ResponseEntity.ok().body(service.getProductById(id));
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         }
     }
 
+    @ApiOperation(value = "Get products by their ids, in the order of the ids, with the ids that were not found")
+    @GetMapping(params = "ids")
+    @StatementBudget(8)
+    public ResponseEntity<MultiGetResult<Product>> getProductsByIds(
+            @ApiParam(value = "Ids of the products (500 at most)", example = "1,2") @RequestParam List<Long> ids,
+            WebRequest request
+    ) {
+        try {
+            if (ConditionalRequests.isNotModified(request, service.getProductListVersion())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+            return ResponseEntity.ok(service.getProductsByIds(ids));
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     @ApiOperation(value = "Get products (filtering by shop and category is possible)")
     @GetMapping
+    @StatementBudget(12)
     @ApiImplicitParams({
             @ApiImplicitParam(name = "page",
                               dataType = "integer",
@@ -85,13 +141,150 @@ public class ProductController {
             Pageable pageable,
             @ApiParam(value = "Id of the shop", example = "1") @RequestParam(required = false) Optional<Long> shopId,
             @ApiParam(value = "Id of the category", example = "1") @RequestParam(required = false)
-            Optional<Long> categoryId
+            Optional<Long> categoryId,
+            WebRequest request
     ) {
+        if (ConditionalRequests.isNotModified(request, service.getProductListVersion())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
         return ResponseEntity.ok(
                 service.getShopProductList(shopId, categoryId, pageable)
         );
     }
 
+    @ApiOperation(value = "Get products with cursor pagination (filtering by shop and category is possible)")
+    @GetMapping(params = "paging=cursor")
+    @StatementBudget(8)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "paging", dataType = "string", paramType = "query", required = true,
+                              value = "Cursor pagination", allowableValues = "cursor"),
+            @ApiImplicitParam(name = "size", dataType = "integer", paramType = "query",
+                              value = "Number of records per page", defaultValue = "5"),
+    })
+    public ResponseEntity<CursorPage<Product>> getProductsOfShopByCursor(
+            Pageable pageable,
+            @ApiParam(value = "Cursor returned in nextCursor or previousCursor, none for the first page")
+            @RequestParam(required = false) Optional<String> cursor,
+            @ApiParam(value = "Id of the shop", example = "1") @RequestParam(required = false) Optional<Long> shopId,
+            @ApiParam(value = "Id of the category", example = "1") @RequestParam(required = false)
+            Optional<Long> categoryId
+    ) {
+        try {
+            return ResponseEntity.ok(
+                    service.getShopProductListByCursor(shopId, categoryId, cursor, pageable)
+            );
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @ApiOperation(value = "Get products with an estimated total (exact when filtering)")
+    @GetMapping(params = "paging=estimate")
+    @StatementBudget(9)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "paging", dataType = "string", paramType = "query", required = true,
+                              value = "Estimated total", allowableValues = "estimate"),
+            @ApiImplicitParam(name = "page",
+                              dataType = "integer",
+                              paramType = "query",
+                              value = "Results page you want to retrieve (0..N)",
+                              defaultValue = "0"),
+            @ApiImplicitParam(name = "size", dataType = "integer", paramType = "query",
+                              value = "Number of records per page", defaultValue = "5"),
+    })
+    public ResponseEntity<Page<Product>> getProductsOfShopWithEstimatedTotal(
+            Pageable pageable,
+            @ApiParam(value = "Id of the shop", example = "1") @RequestParam(required = false) Optional<Long> shopId,
+            @ApiParam(value = "Id of the category", example = "1") @RequestParam(required = false)
+            Optional<Long> categoryId
+    ) {
+        return ResponseEntity.ok(
+                service.getShopProductListWithEstimatedTotal(shopId, categoryId, pageable)
+        );
+    }
+
+    @ApiOperation(value = "Get products without total (filtering by shop and category is possible)")
+    @GetMapping(params = "paging=slice")
+    @StatementBudget(8)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "paging", dataType = "string", paramType = "query", required = true,
+                              value = "No total", allowableValues = "slice"),
+            @ApiImplicitParam(name = "page",
+                              dataType = "integer",
+                              paramType = "query",
+                              value = "Results page you want to retrieve (0..N)",
+                              defaultValue = "0"),
+            @ApiImplicitParam(name = "size", dataType = "integer", paramType = "query",
+                              value = "Number of records per page", defaultValue = "5"),
+    })
+    public ResponseEntity<Slice<Product>> getProductsOfShopWithoutTotal(
+            Pageable pageable,
+            @ApiParam(value = "Id of the shop", example = "1") @RequestParam(required = false) Optional<Long> shopId,
+            @ApiParam(value = "Id of the category", example = "1") @RequestParam(required = false)
+            Optional<Long> categoryId
+    ) {
+        return ResponseEntity.ok(
+                service.getShopProductSlice(shopId, categoryId, pageable)
+        );
+    }
+
+    @ApiOperation(value = "Import products from a NDJSON or CSV file, the invalid lines are reported and skipped")
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<ProductImportReport> importProducts(
+            @ApiParam(value = "Id of the shop of the imported products", example = "1")
+            @RequestParam(required = false) Optional<Long> shopId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body
+    ) {
+        try {
+            return ResponseEntity.ok(
+                    importService.importProducts(body, ProductImportFormat.fromMediaType(contentType), shopId)
+            );
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @ApiOperation(value = "Search products in their localized names and descriptions, with category, shop and price "
+            + "facets (filtering is possible)")
+    @GetMapping("/search")
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "page",
+                              dataType = "integer",
+                              paramType = "query",
+                              value = "Results page you want to retrieve (0..N)",
+                              defaultValue = "0"),
+            @ApiImplicitParam(name = "size", dataType = "integer", paramType = "query",
+                              value = "Number of records per page", defaultValue = "5"),
+    })
+    public ResponseEntity<ProductSearchPage> searchProducts(
+            Pageable pageable,
+            @ApiParam(value = "Words searched in the names and descriptions, all the products when empty",
+                      example = "huile d'olive")
+            @RequestParam(required = false) Optional<String> query,
+            @ApiParam(value = "Language of the searched texts, all the languages when empty", example = "FR",
+                      allowableValues = "FR, EN")
+            @RequestParam(required = false) Optional<String> locale,
+            @ApiParam(value = "Id of the shop", example = "1") @RequestParam(required = false) Optional<Long> shopId,
+            @ApiParam(value = "Id of the category", example = "1") @RequestParam(required = false)
+            Optional<Long> categoryId,
+            @ApiParam(value = "Minimum price", example = "10") @RequestParam(required = false) Optional<Float> minPrice,
+            @ApiParam(value = "Maximum price", example = "50") @RequestParam(required = false) Optional<Float> maxPrice,
+            @ApiParam(value = "Ascending bounds of the price facet", example = "10,20,50,100")
+            @RequestParam(required = false) Optional<List<Float>> priceBounds
+    ) {
+        try {
+            return ResponseEntity.ok(
+                    service.searchProducts(
+                            query, locale, shopId, categoryId, minPrice, maxPrice, priceBounds, pageable
+                    )
+            );
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     @ApiOperation(value = "Update a product")
     @PutMapping
     public ResponseEntity<Product> updateProduct(@Valid @RequestBody Product product, Errors errors) {
@@ -1,7 +1,14 @@
 package fr.fullstack.shopapp.controller;
 
+import fr.fullstack.shopapp.metrics.StatementBudget;
 import fr.fullstack.shopapp.model.Shop;
+import fr.fullstack.shopapp.pagination.CursorPage;
+import fr.fullstack.shopapp.pagination.MultiGetResult;
+import fr.fullstack.shopapp.repository.ShopStatistics;
+import fr.fullstack.shopapp.service.CatalogExportService;
 import fr.fullstack.shopapp.service.ShopService;
+import fr.fullstack.shopapp.util.CompressedResponses;
+import fr.fullstack.shopapp.util.ConditionalRequests;
 import fr.fullstack.shopapp.util.ErrorValidation;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiImplicitParams;
@@ -10,6 +17,7 @@ import io.swagger.annotations.ApiParam;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.Errors;
@@ -22,15 +30,23 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1/shops")
 public class ShopController {
-    // TODO ADD PLAIN TEXT SEARCH FOR SHOP
+    @Autowired
+    private CatalogExportService exportService;
+
     @Autowired
     private ShopService service;
 
@@ -60,8 +76,17 @@ public class ShopController {
         }
     }
 
+    @ApiOperation(value = "Export every shop as NDJSON, with its opening hours (gzip if accepted)")
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public void exportShops(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (OutputStream output = CompressedResponses.open(request, response, "application/x-ndjson")) {
+            exportService.exportShops(output);
+        }
+    }
+
     @ApiOperation(value = "Get shops (sorting and filtering are possible)")
     @GetMapping
+    @StatementBudget(6)
     @ApiImplicitParams({
             @ApiImplicitParam(name = "page",
                               dataType = "integer",
@@ -73,32 +98,245 @@ public class ShopController {
     })
     public ResponseEntity<Page<Shop>> getAllShops(
             Pageable pageable,
-            @ApiParam(value = "To sort the shops. Possible values are 'name', 'nbProducts' and 'createdAt'",
+            @ApiParam(value = "To sort the shops. Possible values are 'id', 'name', 'nbProducts', 'nbCategories', "
+                              + "'minPrice', 'avgPrice', 'maxPrice' and 'createdAt'",
                       example = "name")
             @RequestParam(required = false) Optional<String> sortBy,
+            @ApiParam(value = "Direction of the sort, 'asc' or 'desc' (by default 'desc' for 'nbProducts' and "
+                              + "'nbCategories' only)",
+                      example = "desc")
+            @RequestParam(required = false) Optional<String> sortDirection,
             @ApiParam(value = "Define that the shops must be in vacations or not", example = "true")
             @RequestParam(required = false) Optional<Boolean> inVacations,
             @ApiParam(value = "Define that the shops must be created after this date", example = "2022-11-15")
             @RequestParam(required = false) Optional<String> createdAfter,
             @ApiParam(value = "Define that the shops must be created before this date", example = "2022-11-15")
-            @RequestParam(required = false) Optional<String> createdBefore
+            @RequestParam(required = false) Optional<String> createdBefore,
+            @ApiParam(value = "Define that the shops must be open at this day (1 for monday to 7) and time",
+                      example = "1,09:30")
+            @RequestParam(required = false) Optional<String> openAt,
+            @ApiParam(value = "Define that the shops must be open now", example = "true")
+            @RequestParam(required = false) Optional<Boolean> openNow,
+            WebRequest request
+    ) {
+        if (ConditionalRequests.isNotModified(request, service.getShopListVersion(openAt, openNow))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        try {
+            return ResponseEntity.ok(service.getShopList(
+                    sortBy, sortDirection, inVacations, createdAfter, createdBefore, openAt, openNow, pageable
+            ));
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
 
+    @ApiOperation(value = "Get shops with cursor pagination (sorting and filtering are possible)")
+    @GetMapping(params = "paging=cursor")
+    @StatementBudget(4)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "paging", dataType = "string", paramType = "query", required = true,
+                              value = "Cursor pagination", allowableValues = "cursor"),
+            @ApiImplicitParam(name = "size", dataType = "integer", paramType = "query",
+                              value = "Number of records per page", defaultValue = "5"),
+    })
+    public ResponseEntity<CursorPage<Shop>> getAllShopsByCursor(
+            Pageable pageable,
+            @ApiParam(value = "Cursor returned in nextCursor or previousCursor, none for the first page")
+            @RequestParam(required = false) Optional<String> cursor,
+            @ApiParam(value = "To sort the shops. Possible values are 'id', 'name', 'nbProducts', 'nbCategories', "
+                              + "'minPrice', 'avgPrice', 'maxPrice' and 'createdAt'",
+                      example = "name")
+            @RequestParam(required = false) Optional<String> sortBy,
+            @ApiParam(value = "Direction of the sort, 'asc' or 'desc' (by default 'desc' for 'nbProducts' and "
+                              + "'nbCategories' only)",
+                      example = "desc")
+            @RequestParam(required = false) Optional<String> sortDirection,
+            @ApiParam(value = "Define that the shops must be in vacations or not", example = "true")
+            @RequestParam(required = false) Optional<Boolean> inVacations,
+            @ApiParam(value = "Define that the shops must be created after this date", example = "2022-11-15")
+            @RequestParam(required = false) Optional<String> createdAfter,
+            @ApiParam(value = "Define that the shops must be created before this date", example = "2022-11-15")
+            @RequestParam(required = false) Optional<String> createdBefore,
+            @ApiParam(value = "Define that the shops must be open at this day (1 for monday to 7) and time",
+                      example = "1,09:30")
+            @RequestParam(required = false) Optional<String> openAt,
+            @ApiParam(value = "Define that the shops must be open now", example = "true")
+            @RequestParam(required = false) Optional<Boolean> openNow
     ) {
-        return ResponseEntity.ok(
-                service.getShopList(sortBy, inVacations, createdAfter, createdBefore, pageable)
-        );
+        try {
+            return ResponseEntity.ok(service.getShopListByCursor(
+                    sortBy, sortDirection, inVacations, createdAfter, createdBefore, openAt, openNow, cursor, pageable
+            ));
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @ApiOperation(value = "Get shops with an estimated total (exact when filtering)")
+    @GetMapping(params = "paging=estimate")
+    @StatementBudget(6)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "paging", dataType = "string", paramType = "query", required = true,
+                              value = "Estimated total", allowableValues = "estimate"),
+            @ApiImplicitParam(name = "page",
+                              dataType = "integer",
+                              paramType = "query",
+                              value = "Results page you want to retrieve (0..N)",
+                              defaultValue = "0"),
+            @ApiImplicitParam(name = "size", dataType = "integer", paramType = "query",
+                              value = "Number of records per page", defaultValue = "5"),
+    })
+    public ResponseEntity<Page<Shop>> getAllShopsWithEstimatedTotal(
+            Pageable pageable,
+            @ApiParam(value = "To sort the shops. Possible values are 'id', 'name', 'nbProducts', 'nbCategories', "
+                              + "'minPrice', 'avgPrice', 'maxPrice' and 'createdAt'",
+                      example = "name")
+            @RequestParam(required = false) Optional<String> sortBy,
+            @ApiParam(value = "Direction of the sort, 'asc' or 'desc' (by default 'desc' for 'nbProducts' and "
+                              + "'nbCategories' only)",
+                      example = "desc")
+            @RequestParam(required = false) Optional<String> sortDirection,
+            @ApiParam(value = "Define that the shops must be in vacations or not", example = "true")
+            @RequestParam(required = false) Optional<Boolean> inVacations,
+            @ApiParam(value = "Define that the shops must be created after this date", example = "2022-11-15")
+            @RequestParam(required = false) Optional<String> createdAfter,
+            @ApiParam(value = "Define that the shops must be created before this date", example = "2022-11-15")
+            @RequestParam(required = false) Optional<String> createdBefore,
+            @ApiParam(value = "Define that the shops must be open at this day (1 for monday to 7) and time",
+                      example = "1,09:30")
+            @RequestParam(required = false) Optional<String> openAt,
+            @ApiParam(value = "Define that the shops must be open now", example = "true")
+            @RequestParam(required = false) Optional<Boolean> openNow
+    ) {
+        try {
+            return ResponseEntity.ok(service.getShopListWithEstimatedTotal(
+                    sortBy, sortDirection, inVacations, createdAfter, createdBefore, openAt, openNow, pageable
+            ));
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @ApiOperation(value = "Get shops without total (sorting and filtering are possible)")
+    @GetMapping(params = "paging=slice")
+    @StatementBudget(4)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "paging", dataType = "string", paramType = "query", required = true,
+                              value = "No total", allowableValues = "slice"),
+            @ApiImplicitParam(name = "page",
+                              dataType = "integer",
+                              paramType = "query",
+                              value = "Results page you want to retrieve (0..N)",
+                              defaultValue = "0"),
+            @ApiImplicitParam(name = "size", dataType = "integer", paramType = "query",
+                              value = "Number of records per page", defaultValue = "5"),
+    })
+    public ResponseEntity<Slice<Shop>> getAllShopsWithoutTotal(
+            Pageable pageable,
+            @ApiParam(value = "To sort the shops. Possible values are 'id', 'name', 'nbProducts', 'nbCategories', "
+                              + "'minPrice', 'avgPrice', 'maxPrice' and 'createdAt'",
+                      example = "name")
+            @RequestParam(required = false) Optional<String> sortBy,
+            @ApiParam(value = "Direction of the sort, 'asc' or 'desc' (by default 'desc' for 'nbProducts' and "
+                              + "'nbCategories' only)",
+                      example = "desc")
+            @RequestParam(required = false) Optional<String> sortDirection,
+            @ApiParam(value = "Define that the shops must be in vacations or not", example = "true")
+            @RequestParam(required = false) Optional<Boolean> inVacations,
+            @ApiParam(value = "Define that the shops must be created after this date", example = "2022-11-15")
+            @RequestParam(required = false) Optional<String> createdAfter,
+            @ApiParam(value = "Define that the shops must be created before this date", example = "2022-11-15")
+            @RequestParam(required = false) Optional<String> createdBefore,
+            @ApiParam(value = "Define that the shops must be open at this day (1 for monday to 7) and time",
+                      example = "1,09:30")
+            @RequestParam(required = false) Optional<String> openAt,
+            @ApiParam(value = "Define that the shops must be open now", example = "true")
+            @RequestParam(required = false) Optional<Boolean> openNow
+    ) {
+        try {
+            return ResponseEntity.ok(service.getShopSlice(
+                    sortBy, sortDirection, inVacations, createdAfter, createdBefore, openAt, openNow, pageable
+            ));
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     @ApiOperation(value = "Get a shop by id")
     @GetMapping("/{id}")
-    public ResponseEntity<Shop> getShopById(@PathVariable long id) {
+    @StatementBudget(4)
+    public ResponseEntity<Shop> getShopById(@PathVariable long id, WebRequest request) {
         try {
+            if (ConditionalRequests.isNotModified(request, service.getShopVersion(id))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
             return ResponseEntity.ok().body(service.getShopById(id));
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         }
     }
 
+    @ApiOperation(value = "Get the statistics of the products of a shop: counts, prices and products by category")
+    @GetMapping("/{id}/stats")
+    @StatementBudget(3)
+    public ResponseEntity<ShopStatistics> getShopStatistics(@PathVariable long id, WebRequest request) {
+        try {
+            if (ConditionalRequests.isNotModified(request, service.getShopStatisticsVersion(id))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+            return ResponseEntity.ok(service.getShopStatistics(id));
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @ApiOperation(value = "Get shops by their ids, in the order of the ids, with the ids that were not found")
+    @GetMapping(params = "ids")
+    @StatementBudget(4)
+    public ResponseEntity<MultiGetResult<Shop>> getShopsByIds(
+            @ApiParam(value = "Ids of the shops (500 at most)", example = "1,2") @RequestParam List<Long> ids,
+            WebRequest request
+    ) {
+        try {
+            if (ConditionalRequests.isNotModified(request, service.getShopListVersion())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+            return ResponseEntity.ok(service.getShopsByIds(ids));
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @ApiOperation(value = "Search shops by name, ranked by relevance (filtering is possible)")
+    @GetMapping("/search")
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "size", dataType = "integer", paramType = "query",
+                              value = "Number of records per page", defaultValue = "5"),
+    })
+    public ResponseEntity<CursorPage<Shop>> searchShops(
+            Pageable pageable,
+            @ApiParam(value = "Words searched in the name of the shops, all the shops when empty", example = "bio")
+            @RequestParam(required = false) Optional<String> query,
+            @ApiParam(value = "Cursor returned in nextCursor, none for the first page")
+            @RequestParam(required = false) Optional<String> cursor,
+            @ApiParam(value = "Define that the shops must be in vacations or not", example = "true")
+            @RequestParam(required = false) Optional<Boolean> inVacations,
+            @ApiParam(value = "Define that the shops must be created after this date", example = "2022-11-15")
+            @RequestParam(required = false) Optional<String> createdAfter,
+            @ApiParam(value = "Define that the shops must be created before this date", example = "2022-11-15")
+            @RequestParam(required = false) Optional<String> createdBefore
+    ) {
+        try {
+            return ResponseEntity.ok(
+                    service.searchShops(query, inVacations, createdAfter, createdBefore, cursor, pageable)
+            );
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     @ApiOperation(value = "Update a shop")
     @PutMapping
     public ResponseEntity<Shop> updateShop(@Valid @RequestBody Shop shop, Errors errors) {
@@ -0,0 +1,44 @@
+package fr.fullstack.shopapp.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Sends the read-only transactions of the current thread to the primary, for the reads that must see a write just
+ * committed: a replica may not have received it yet.
+ */
+public class ReadYourWrites {
+    private static final ThreadLocal<Boolean> ON_PRIMARY = ThreadLocal.withInitial(() -> false);
+
+    private ReadYourWrites() {
+    }
+
+    public static boolean isOnPrimary() {
+        return ON_PRIMARY.get();
+    }
+
+    public static <T> T onPrimary(Supplier<T> reads) {
+        boolean previous = requirePrimary();
+        try {
+            return reads.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * @return the previous state, given back to {@link #restore(boolean)}
+     */
+    static boolean requirePrimary() {
+        boolean previous = ON_PRIMARY.get();
+        ON_PRIMARY.set(true);
+        return previous;
+    }
+
+    static void restore(boolean previous) {
+        if (previous) {
+            ON_PRIMARY.set(true);
+        } else {
+            ON_PRIMARY.remove();
+        }
+    }
+}
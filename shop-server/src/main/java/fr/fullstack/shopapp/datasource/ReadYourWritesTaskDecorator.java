@@ -0,0 +1,24 @@
+package fr.fullstack.shopapp.datasource;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Carries the read-your-writes state of the submitting thread to the task, for the reads of a request that are run
+ * on another thread.
+ */
+public class ReadYourWritesTaskDecorator implements TaskDecorator {
+    @Override
+    public Runnable decorate(Runnable task) {
+        if (!ReadYourWrites.isOnPrimary()) {
+            return task;
+        }
+        return () -> {
+            boolean previous = ReadYourWrites.requirePrimary();
+            try {
+                task.run();
+            } finally {
+                ReadYourWrites.restore(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,91 @@
+package fr.fullstack.shopapp.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas, used when shop.datasource.replicas.urls is set: the read-only transactions are balanced between
+ * them, the other ones go to the primary of spring.datasource.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "shop.datasource.replicas", name = "urls")
+public class ReplicaDataSourceConfig {
+    // A replica that does not answer quickly is left aside, its reads go elsewhere
+    @Value("${shop.datasource.replicas.connection-timeout:1s}")
+    private Duration connectionTimeout;
+
+    @Value("${shop.datasource.replicas.maximum-pool-size:10}")
+    private int maximumPoolSize;
+
+    @Value("${shop.datasource.replicas.password:${spring.datasource.password}}")
+    private String password;
+
+    @Value("${shop.datasource.replicas.retry-after:10s}")
+    private Duration retryAfter;
+
+    @Value("${shop.datasource.replicas.urls}")
+    private List<String> urls;
+
+    @Value("${shop.datasource.replicas.username:${spring.datasource.username}}")
+    private String username;
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "shop.datasource.replicas", name = "read-your-writes")
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${shop.datasource.replicas.read-your-writes}") Duration window
+    ) {
+        return new ReadYourWritesFilter(window);
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource routingDataSource(
+            HikariDataSource primaryDataSource,
+            ObjectProvider<MetricsTrackerFactory> metricsTrackerFactory
+    ) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setConnectionTimeout(connectionTimeout.toMillis());
+            if (primaryDataSource.getDriverClassName() != null) {
+                replica.setDriverClassName(primaryDataSource.getDriverClassName());
+            }
+            replica.setJdbcUrl(url);
+            // Started at the first read, a replica down at startup does not prevent it
+            replica.setInitializationFailTimeout(-1);
+            replica.setMaximumPoolSize(maximumPoolSize);
+            metricsTrackerFactory.ifAvailable(replica::setMetricsTrackerFactory);
+            replica.setPassword(password);
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setReadOnly(true);
+            replica.setUsername(username);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, retryAfter);
+    }
+}
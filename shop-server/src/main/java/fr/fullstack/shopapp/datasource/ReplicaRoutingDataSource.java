@@ -0,0 +1,111 @@
+package fr.fullstack.shopapp.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Gives the connections of the read-only transactions to the replicas, in turn, and all the others to the primary.
+ * A replica that cannot give a connection is left aside for retryAfter, its reads go to the next replica, or to the
+ * primary when none is left. The transaction must be known before the connection is taken: this data source is used
+ * behind a LazyConnectionDataSourceProxy, which takes it at the first statement. The connections asked with
+ * credentials are taken from the pools opened with the same ones.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final HikariDataSource primary;
+
+    private final List<Replica> replicas;
+
+    private final long retryAfterMillis;
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas, Duration retryAfter) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).collect(Collectors.toList());
+        this.retryAfterMillis = retryAfter.toMillis();
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = isReadingFromReplica() ? getReplicaConnection(dataSource -> true) : null;
+        return connection != null ? connection : primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // The pools do not open connections for other credentials than their own
+        Connection connection = isReadingFromReplica()
+                ? getReplicaConnection(dataSource -> hasCredentials(dataSource, username, password))
+                : null;
+        if (connection != null) {
+            return connection;
+        }
+        if (!hasCredentials(primary, username, password)) {
+            throw new SQLException("No pool of the data source has the credentials of " + username);
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * @return whether the connection of the current transaction is taken from a replica, when one is available
+     */
+    public static boolean isReadingFromReplica() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !ReadYourWrites.isOnPrimary();
+    }
+
+    private static boolean hasCredentials(HikariDataSource dataSource, String username, String password) {
+        return Objects.equals(dataSource.getUsername(), username) && Objects.equals(dataSource.getPassword(), password);
+    }
+
+    /**
+     * @return a connection of the next available replica accepted by the filter, null when there is none
+     */
+    private Connection getReplicaConnection(Predicate<HikariDataSource> filter) {
+        long now = System.currentTimeMillis();
+        int first = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((first + i) % replicas.size());
+            if (replica.unavailableUntil > now || !filter.test(replica.dataSource)) {
+                continue;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException | RuntimeException e) {
+                replica.unavailableUntil = now + retryAfterMillis;
+                LOGGER.warn("Replica {} left aside for {} ms: {}",
+                            replica.dataSource.getPoolName(), retryAfterMillis, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private static class Replica {
+        private final HikariDataSource dataSource;
+
+        private volatile long unavailableUntil;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package fr.fullstack.shopapp.management;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import fr.fullstack.shopapp.service.CategoryService;
+import fr.fullstack.shopapp.service.ReindexService;
+import fr.fullstack.shopapp.service.ShopService;
+import fr.fullstack.shopapp.trace.TraceSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Administration operations, served on the management port (shop.metrics.port) next to the metrics and not with the
+ * API: they change the settings of the server or run long tasks. The parameters are read from the query string, the
+ * result is written in JSON, an error is a 400 with its message.
+ */
+@Component
+public class ManagementOperations implements HttpHandler {
+    private static final String LOGGERS = "/trace/loggers/";
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ReindexService reindexService;
+
+    @Autowired
+    private ShopService shopService;
+
+    @Autowired
+    private TraceSettings traceSettings;
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            int status = 200;
+            Object result;
+            try {
+                result = run(exchange.getRequestMethod(), exchange.getRequestURI().getPath(),
+                             getParameters(exchange.getRequestURI()));
+                if (result == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+            } catch (Exception e) {
+                status = 400;
+                result = Map.of("message", String.valueOf(e.getMessage()));
+            }
+
+            byte[] body = objectMapper.writeValueAsBytes(result);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+
+    private Optional<Integer> getInteger(Map<String, String> parameters, String name) {
+        return Optional.ofNullable(parameters.get(name)).map(Integer::valueOf);
+    }
+
+    private Map<String, String> getParameters(URI uri) {
+        Map<String, String> parameters = new HashMap<>();
+        if (uri.getRawQuery() != null) {
+            for (String parameter : uri.getRawQuery().split("&")) {
+                String[] nameAndValue = parameter.split("=", 2);
+                parameters.put(
+                        URLDecoder.decode(nameAndValue[0], StandardCharsets.UTF_8),
+                        nameAndValue.length == 2 ? URLDecoder.decode(nameAndValue[1], StandardCharsets.UTF_8) : ""
+                );
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * @return the result of the operation, null when there is no such operation
+     */
+    private Object run(String method, String path, Map<String, String> parameters) throws Exception {
+        switch (method + " " + path) {
+            case "POST /categories/counters/rebuild":
+                return categoryService.rebuildCounters();
+            case "GET /indexing/reindex":
+                return reindexService.getStatus();
+            case "POST /indexing/reindex":
+                return reindexService.startReindexing(
+                        Optional.ofNullable(parameters.get("entity")),
+                        getInteger(parameters, "threads"),
+                        getInteger(parameters, "batchSize"),
+                        getInteger(parameters, "maxEntitiesPerSecond")
+                );
+            case "POST /shops/counters/rebuild":
+                return shopService.rebuildCounters();
+            case "POST /shops/schedules/rebuild":
+                return shopService.rebuildOpeningSchedules();
+            case "GET /trace":
+                return traceSettings.getStatus();
+            case "PUT /trace":
+                return traceSettings.update(
+                        Optional.ofNullable(parameters.get("sampleRate")).map(Double::valueOf),
+                        Optional.ofNullable(parameters.get("slowQueryThreshold")).map(Long::valueOf)
+                );
+            default:
+                if ("PUT".equals(method) && path.startsWith(LOGGERS)) {
+                    return traceSettings.setLevel(
+                            path.substring(LOGGERS.length()),
+                            Optional.ofNullable(parameters.get("level")).filter(level -> !level.isEmpty())
+                    );
+                }
+                return null;
+        }
+    }
+}
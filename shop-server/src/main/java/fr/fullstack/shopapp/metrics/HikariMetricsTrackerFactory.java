@@ -0,0 +1,58 @@
+package fr.fullstack.shopapp.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wait for a connection, connections in use and threads waiting, of each Hikari pool (the primary and the replicas).
+ */
+@Component
+public class HikariMetricsTrackerFactory implements MetricsTrackerFactory {
+    @Autowired
+    private MetricsRegistry registry;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        String labels = MetricsRegistry.labels("pool", poolName);
+        registry.registerGauge("hikaricp_connections_active", "Connections in use", labels,
+                               poolStats::getActiveConnections);
+        registry.registerGauge("hikaricp_connections_idle", "Idle connections", labels,
+                               poolStats::getIdleConnections);
+        registry.registerGauge("hikaricp_connections_max", "Maximum size of the pool", labels,
+                               poolStats::getMaxConnections);
+        registry.registerGauge("hikaricp_connections_pending", "Threads waiting for a connection", labels,
+                               poolStats::getPendingThreads);
+        Histogram acquire = registry.getHistogram(
+                "hikaricp_connections_acquire_seconds", "Wait for a connection", labels, true
+        );
+        LongAdder timeouts = registry.getCounter(
+                "hikaricp_connections_timeout_total", "Connections not obtained before the timeout", labels
+        );
+        Histogram usage = registry.getHistogram(
+                "hikaricp_connections_usage_seconds", "Time a connection is used before it is returned", labels, true
+        );
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquire.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+        };
+    }
+}
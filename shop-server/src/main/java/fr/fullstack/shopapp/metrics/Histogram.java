@@ -0,0 +1,68 @@
+package fr.fullstack.shopapp.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of values in fixed buckets, exported as a Prometheus histogram: the quantiles are computed at query
+ * time, with histogram_quantile. Recording a value is a binary search and two uncontended additions.
+ */
+public class Histogram {
+    // Numbers of statements, loaded entities...
+    public static final long[] COUNT_BOUNDS = {0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000};
+
+    // In nanoseconds, from 0.5 ms to 10 s
+    public static final long[] LATENCY_BOUNDS = Arrays.stream(new double[]{
+            0.5, 1, 2.5, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000
+    }).mapToLong(millis -> (long) (millis * TimeUnit.MILLISECONDS.toNanos(1))).toArray();
+
+    private final long[] bounds;
+
+    // Not cumulated: the count of a bucket is the number of values above the previous bound
+    private final LongAdder[] counts;
+
+    private final LongAdder sum = new LongAdder();
+
+    // Divides the recorded values, to export them in the base unit (seconds for the nanoseconds)
+    private final double unit;
+
+    public Histogram(long[] bounds, double unit) {
+        this.bounds = bounds;
+        this.counts = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+        this.unit = unit;
+    }
+
+    public static Histogram ofCounts() {
+        return new Histogram(COUNT_BOUNDS, 1);
+    }
+
+    public static Histogram ofLatencies() {
+        return new Histogram(LATENCY_BOUNDS, TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public void record(long value) {
+        int bucket = Arrays.binarySearch(bounds, value);
+        // The upper bound of a bucket is inclusive
+        counts[bucket >= 0 ? bucket : -bucket - 1].increment();
+        sum.add(value);
+    }
+
+    void write(Writer writer, String name, String labels) throws IOException {
+        String separator = labels.isEmpty() ? "" : ",";
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            count += counts[i].sum();
+            String bound = i < bounds.length ? String.valueOf(bounds[i] / unit) : "+Inf";
+            writer.write(name + "_bucket{" + labels + separator + "le=\"" + bound + "\"} " + count + "\n");
+        }
+        String suffix = labels.isEmpty() ? " " : "{" + labels + "} ";
+        writer.write(name + "_sum" + suffix + sum.sum() / unit + "\n");
+        writer.write(name + "_count" + suffix + count + "\n");
+    }
+}
@@ -0,0 +1,88 @@
+package fr.fullstack.shopapp.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import fr.fullstack.shopapp.management.ManagementOperations;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Latencies of the controllers and of the repositories, Hikari pools and database work per request, served on
+ * shop.metrics.port (8081 by default) with the management operations. The statement budgets of the controllers are
+ * checked at the end of the requests, the number of statements is sent in a header of the responses.
+ */
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+    @Autowired
+    private MetricsRegistry registry;
+
+    /**
+     * Times the repositories, tracks the Hikari pools and counts the statements. Static, so that it is created before
+     * the beans it processes; the metrics beans are only resolved when it processes the first one.
+     */
+    @Bean
+    public static BeanPostProcessor metricsBeanPostProcessor(
+            ObjectProvider<MetricsRegistry> registry,
+            ObjectProvider<HikariMetricsTrackerFactory> trackerFactory
+    ) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource && ((HikariDataSource) bean).getMetricsTrackerFactory() == null) {
+                    ((HikariDataSource) bean).setMetricsTrackerFactory(trackerFactory.getObject());
+                } else if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(
+                            factory -> factory.addRepositoryProxyPostProcessor((proxy, repository) -> proxy.addAdvice(
+                                    0, new RepositoryMetricsInterceptor(
+                                            registry.getObject(), repository.getRepositoryInterface()
+                                    )
+                            ))
+                    );
+                }
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // The data source of the application, the pools of the replicas are behind it
+                if ("dataSource".equals(beanName) && bean instanceof DataSource) {
+                    return new StatementCountingDataSource((DataSource) bean);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptors) {
+        interceptors.addInterceptor(new RequestMetricsInterceptor(registry));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateStatisticsCustomizer() {
+        return properties -> properties.put(
+                "hibernate.integrator_provider", (IntegratorProvider) () -> List.of(new RequestStatisticsIntegrator())
+        );
+    }
+
+    @Bean
+    public MetricsServer metricsServer(ManagementOperations operations, @Value("${shop.metrics.port:8081}") int port) {
+        return new MetricsServer(registry, operations, port);
+    }
+
+    @Bean
+    public StatementCountFilter statementCountFilter() {
+        return new StatementCountFilter();
+    }
+}
@@ -0,0 +1,91 @@
+package fr.fullstack.shopapp.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Metrics of the server, written in the Prometheus text format by the MetricsServer. A metric is identified by its
+ * name and its labels; the callers keep the returned instances, the lookups are not on the hot path.
+ */
+@Component
+public class MetricsRegistry {
+    private final ConcurrentMap<String, Family> families = new ConcurrentHashMap<>();
+
+    /**
+     * @param namesAndValues names of the labels, each followed by its value
+     */
+    public static String labels(String... namesAndValues) {
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            if (labels.length() > 0) {
+                labels.append(',');
+            }
+            String value = namesAndValues[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+            labels.append(namesAndValues[i]).append("=\"").append(value).append('"');
+        }
+        return labels.toString();
+    }
+
+    public LongAdder getCounter(String name, String help, String labels) {
+        return (LongAdder) getFamily(name, help, "counter").series.computeIfAbsent(labels, key -> new LongAdder());
+    }
+
+    public Histogram getHistogram(String name, String help, String labels, boolean latencies) {
+        return (Histogram) getFamily(name, help, "histogram").series.computeIfAbsent(
+                labels, key -> latencies ? Histogram.ofLatencies() : Histogram.ofCounts()
+        );
+    }
+
+    public void registerGauge(String name, String help, String labels, DoubleSupplier value) {
+        getFamily(name, help, "gauge").series.put(labels, value);
+    }
+
+    public void write(Writer writer) throws IOException {
+        for (Map.Entry<String, Family> family : new TreeMap<>(families).entrySet()) {
+            String name = family.getKey();
+            writer.write("# HELP " + name + " " + family.getValue().help + "\n");
+            writer.write("# TYPE " + name + " " + family.getValue().type + "\n");
+            for (Map.Entry<String, Object> series : new TreeMap<>(family.getValue().series).entrySet()) {
+                String labels = series.getKey();
+                Object metric = series.getValue();
+                if (metric instanceof Histogram) {
+                    ((Histogram) metric).write(writer, name, labels);
+                    continue;
+                }
+                double value = metric instanceof LongAdder
+                        ? ((LongAdder) metric).sum()
+                        : ((DoubleSupplier) metric).getAsDouble();
+                writer.write(name + (labels.isEmpty() ? " " : "{" + labels + "} ") + value + "\n");
+            }
+        }
+    }
+
+    private Family getFamily(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("The metric " + name + " is a " + family.type + ", not a " + type);
+        }
+        return family;
+    }
+
+    private static class Family {
+        private final String help;
+
+        private final ConcurrentMap<String, Object> series = new ConcurrentHashMap<>();
+
+        private final String type;
+
+        private Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package fr.fullstack.shopapp.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import fr.fullstack.shopapp.management.ManagementOperations;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves GET /metrics in the Prometheus text format on the management port, apart from the request threads of the
+ * API: a scrape does not wait behind the requests, and the port is not exposed with the API. The management
+ * operations are served on the same port.
+ */
+public class MetricsServer implements SmartLifecycle {
+    // A scrape does not wait behind a long operation, such as a rebuild of the counters
+    private static final int THREADS = 4;
+
+    private ExecutorService executor;
+
+    private final ManagementOperations operations;
+
+    private final int port;
+
+    private final MetricsRegistry registry;
+
+    private HttpServer server;
+
+    public MetricsServer(MetricsRegistry registry, ManagementOperations operations, int port) {
+        this.operations = operations;
+        this.port = port;
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    @Override
+    public void start() {
+        try {
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("The metrics cannot be served on the port " + port, e);
+        }
+        server.createContext("/metrics", this::scrape);
+        server.createContext("/", operations);
+        executor = Executors.newFixedThreadPool(THREADS);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @Override
+    public void stop() {
+        server.stop(0);
+        server = null;
+        executor.shutdownNow();
+    }
+
+    private void scrape(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            StringWriter metrics = new StringWriter();
+            registry.write(metrics);
+            byte[] body = metrics.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+}
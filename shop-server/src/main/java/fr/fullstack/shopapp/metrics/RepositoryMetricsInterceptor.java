@@ -0,0 +1,38 @@
+package fr.fullstack.shopapp.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records the latency of each method of a repository, transaction included. A method returning a stream is measured
+ * until its query is executed, not until the stream is consumed.
+ */
+public class RepositoryMetricsInterceptor implements MethodInterceptor {
+    private final ConcurrentMap<Method, Histogram> latencies = new ConcurrentHashMap<>();
+
+    private final MetricsRegistry registry;
+
+    private final String repository;
+
+    public RepositoryMetricsInterceptor(MetricsRegistry registry, Class<?> repositoryInterface) {
+        this.registry = registry;
+        this.repository = repositoryInterface.getSimpleName();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            latencies.computeIfAbsent(invocation.getMethod(), method -> registry.getHistogram(
+                    "repository_invocations_seconds", "Latency of the repository methods",
+                    MetricsRegistry.labels("method", repository + "." + method.getName()), true
+            )).record(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package fr.fullstack.shopapp.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the latency of each controller method, and the statements, entity loads and collection fetches of its
+ * requests; a request over the statement budget of its method is logged with its statements. An asynchronous request
+ * goes through the interceptor twice, the statistics are kept in the request.
+ */
+public class RequestMetricsInterceptor implements AsyncHandlerInterceptor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestMetricsInterceptor.class);
+
+    private static final String STATISTICS = RequestMetricsInterceptor.class.getName() + ".statistics";
+
+    private final ConcurrentMap<Method, HandlerMetrics> handlers = new ConcurrentHashMap<>();
+
+    private final MetricsRegistry registry;
+
+    public RequestMetricsInterceptor(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        RequestStatistics statistics = (RequestStatistics) request.getAttribute(STATISTICS);
+        if (!(handler instanceof HandlerMethod) || statistics == null) {
+            return;
+        }
+
+        RequestStatistics.restore(null);
+        request.removeAttribute(STATISTICS);
+        long latency = System.nanoTime() - statistics.getStartNanos();
+        HandlerMetrics metrics = handlers.computeIfAbsent(((HandlerMethod) handler).getMethod(), HandlerMetrics::new);
+        metrics.record(statistics, response.getStatus(), latency);
+        statistics.getBlownBudget().ifPresent(budget -> {
+            metrics.blownBudgets.increment();
+            String query = request.getQueryString() != null ? "?" + request.getQueryString() : "";
+            LOGGER.warn("{} {}{} sent {} SQL statements, over the budget of {}:\n{}",
+                        request.getMethod(), request.getRequestURI(), query, statistics.getStatements(), budget,
+                        String.join("\n", statistics.getStatementsSql()));
+        });
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        // The request is continued by another thread
+        RequestStatistics.restore(null);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // The error page of a failed request is not a request of its own
+        if (handler instanceof HandlerMethod && request.getDispatcherType() != DispatcherType.ERROR) {
+            RequestStatistics statistics = (RequestStatistics) request.getAttribute(STATISTICS);
+            if (statistics == null) {
+                statistics = new RequestStatistics(
+                        Optional.ofNullable(((HandlerMethod) handler).getMethodAnnotation(StatementBudget.class))
+                );
+                request.setAttribute(STATISTICS, statistics);
+            }
+            RequestStatistics.bind(statistics);
+        }
+        return true;
+    }
+
+    /**
+     * @return the statistics of the request, null before its handler is called and once it is completed
+     */
+    static RequestStatistics getStatistics(HttpServletRequest request) {
+        return (RequestStatistics) request.getAttribute(STATISTICS);
+    }
+
+    private class HandlerMetrics {
+        private final LongAdder blownBudgets;
+
+        private final Histogram collectionFetches;
+
+        private final Histogram entityLoads;
+
+        private final String handler;
+
+        private final ConcurrentMap<Integer, Histogram> latencies = new ConcurrentHashMap<>();
+
+        private final Histogram statements;
+
+        private HandlerMetrics(Method method) {
+            this.handler = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+            String labels = MetricsRegistry.labels("handler", handler);
+            this.blownBudgets = registry.getCounter(
+                    "statement_budget_exceeded_total", "Requests over the statement budget of their method", labels
+            );
+            this.collectionFetches = registry.getHistogram(
+                    "hibernate_collection_fetches_per_request", "Collections initialized by a request", labels, false
+            );
+            this.entityLoads = registry.getHistogram(
+                    "hibernate_entity_loads_per_request", "Entities loaded by a request", labels, false
+            );
+            this.statements = registry.getHistogram(
+                    "jdbc_statements_per_request", "SQL statements sent by a request", labels, false
+            );
+        }
+
+        private void record(RequestStatistics statistics, int status, long latency) {
+            latencies.computeIfAbsent(status, key -> registry.getHistogram(
+                    "http_server_requests_seconds", "Latency of the requests, by controller method and status",
+                    MetricsRegistry.labels("handler", handler, "status", String.valueOf(status)), true
+            )).record(latency);
+            collectionFetches.record(statistics.getCollectionFetches());
+            entityLoads.record(statistics.getEntityLoads());
+            statements.record(statistics.getStatements());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package fr.fullstack.shopapp.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Database work of a request: counted by the JDBC and Hibernate listeners on the thread serving the request, which is
+ * bound to it, and recorded per handler at its end. A request is served by one thread at a time, the asynchronous
+ * reads bind it to the thread of the read executor.
+ */
+public class RequestStatistics {
+    private static final ThreadLocal<RequestStatistics> CURRENT = new ThreadLocal<>();
+
+    // The statements kept for the log of a blown budget
+    private static final int MAX_KEPT_STATEMENTS = 100;
+
+    private final Optional<StatementBudget> budget;
+
+    private int collectionFetches;
+
+    private int entityLoads;
+
+    private final long startNanos = System.nanoTime();
+
+    private int statements;
+
+    private final List<String> statementsSql = new ArrayList<>();
+
+    RequestStatistics(Optional<StatementBudget> budget) {
+        this.budget = budget;
+    }
+
+    public static RequestStatistics getCurrent() {
+        return CURRENT.get();
+    }
+
+    static void countCollectionFetch() {
+        RequestStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.collectionFetches++;
+        }
+    }
+
+    static void countEntityLoad() {
+        RequestStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.entityLoads++;
+        }
+    }
+
+    static void countStatement(String sql) {
+        RequestStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.statements++;
+            if (statistics.statementsSql.size() < MAX_KEPT_STATEMENTS) {
+                statistics.statementsSql.add(sql);
+            }
+        }
+    }
+
+    /**
+     * @return the statistics previously bound to the thread, given back to {@link #restore(RequestStatistics)}
+     */
+    static RequestStatistics bind(RequestStatistics statistics) {
+        RequestStatistics previous = CURRENT.get();
+        CURRENT.set(statistics);
+        return previous;
+    }
+
+    static void restore(RequestStatistics previous) {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * @return the budget of the handler when the request exceeds it
+     */
+    Optional<Integer> getBlownBudget() {
+        return budget.map(StatementBudget::value).filter(maximum -> statements > maximum);
+    }
+
+    int getCollectionFetches() {
+        return collectionFetches;
+    }
+
+    int getEntityLoads() {
+        return entityLoads;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    int getStatements() {
+        return statements;
+    }
+
+    List<String> getStatementsSql() {
+        return statementsSql;
+    }
+}
@@ -0,0 +1,30 @@
+package fr.fullstack.shopapp.metrics;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * Counts the entity loads and the collection fetches of the current request, after the listeners of Hibernate. The
+ * statements are counted below, by the StatementCountingDataSource.
+ */
+public class RequestStatisticsIntegrator implements Integrator {
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        EventListenerRegistry listeners = serviceRegistry.getService(EventListenerRegistry.class);
+        InitializeCollectionEventListener collectionFetches = event -> RequestStatistics.countCollectionFetch();
+        PostLoadEventListener entityLoads = event -> RequestStatistics.countEntityLoad();
+        listeners.appendListeners(EventType.INIT_COLLECTION, collectionFetches);
+        listeners.appendListeners(EventType.POST_LOAD, entityLoads);
+    }
+}
@@ -0,0 +1,24 @@
+package fr.fullstack.shopapp.metrics;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Counts the Hibernate work of a task in the statistics of the request that submitted it.
+ */
+public class RequestStatisticsTaskDecorator implements TaskDecorator {
+    @Override
+    public Runnable decorate(Runnable task) {
+        RequestStatistics statistics = RequestStatistics.getCurrent();
+        if (statistics == null) {
+            return task;
+        }
+        return () -> {
+            RequestStatistics previous = RequestStatistics.bind(statistics);
+            try {
+                task.run();
+            } finally {
+                RequestStatistics.restore(previous);
+            }
+        };
+    }
+}
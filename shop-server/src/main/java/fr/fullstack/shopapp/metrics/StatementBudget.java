@@ -0,0 +1,16 @@
+package fr.fullstack.shopapp.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maximum number of SQL statements of a request to the annotated controller method, whatever the size of the page:
+ * a request over it is logged with its statements. StatementBudgetTest calls each annotated method.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface StatementBudget {
+    int value();
+}
@@ -0,0 +1,137 @@
+package fr.fullstack.shopapp.metrics;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Sends the number of SQL statements of the request in the X-Statement-Count header. The header is set as long as the
+ * response is not committed: when its status is set, which is all a 304 gets before the container commits it at the
+ * end of the request, and again when its body starts to be written. The statements sent while a streamed response is
+ * written come after and are not counted.
+ */
+public class StatementCountFilter extends OncePerRequestFilter {
+    public static final String HEADER = "X-Statement-Count";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        // The asynchronous dispatches go on with the response given when the request started
+        chain.doFilter(request, new StatementCountResponse(request, response));
+    }
+
+    private static class StatementCountResponse extends HttpServletResponseWrapper {
+        private ServletOutputStream outputStream;
+
+        private final HttpServletRequest request;
+
+        private StatementCountResponse(HttpServletRequest request, HttpServletResponse response) {
+            super(response);
+            this.request = request;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            setStatementCount();
+            super.flushBuffer();
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new StatementCountOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            setStatementCount();
+            return super.getWriter();
+        }
+
+        @Override
+        public void sendError(int status) throws IOException {
+            setStatementCount();
+            super.sendError(status);
+        }
+
+        @Override
+        public void sendError(int status, String message) throws IOException {
+            setStatementCount();
+            super.sendError(status, message);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            setStatementCount();
+            super.sendRedirect(location);
+        }
+
+        @Override
+        public void setStatus(int status) {
+            super.setStatus(status);
+            setStatementCount();
+        }
+
+        private void setStatementCount() {
+            if (isCommitted()) {
+                return;
+            }
+            RequestStatistics statistics = RequestMetricsInterceptor.getStatistics(request);
+            if (statistics != null) {
+                setHeader(HEADER, String.valueOf(statistics.getStatements()));
+            }
+        }
+
+        private class StatementCountOutputStream extends ServletOutputStream {
+            private final ServletOutputStream output;
+
+            private StatementCountOutputStream(ServletOutputStream output) {
+                this.output = output;
+            }
+
+            @Override
+            public void close() throws IOException {
+                setStatementCount();
+                output.close();
+            }
+
+            @Override
+            public void flush() throws IOException {
+                setStatementCount();
+                output.flush();
+            }
+
+            @Override
+            public boolean isReady() {
+                return output.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                output.setWriteListener(listener);
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                setStatementCount();
+                output.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                setStatementCount();
+                output.write(b, off, len);
+            }
+        }
+    }
+}
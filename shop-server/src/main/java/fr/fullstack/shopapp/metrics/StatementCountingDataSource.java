@@ -0,0 +1,81 @@
+package fr.fullstack.shopapp.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * Counts the SQL statements of the current request at the JDBC level, whatever sends them (Hibernate, the JDBC
+ * templates, the migrations): the statements prepared on its connections and the ones executed by their plain
+ * statements. A batch is prepared once, it counts as one statement.
+ */
+public class StatementCountingDataSource extends DelegatingDataSource implements Closeable {
+    private static final Set<String> PREPARING_METHODS = Set.of("prepareCall", "prepareStatement");
+
+    private static final Set<String> EXECUTING_METHODS = Set.of(
+            "addBatch", "execute", "executeLargeUpdate", "executeQuery", "executeUpdate"
+    );
+
+    public StatementCountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Closes the pool at the shutdown, in place of the wrapped data source
+        if (getTargetDataSource() instanceof Closeable) {
+            ((Closeable) getTargetDataSource()).close();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return countStatements(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return countStatements(super.getConnection(username, password));
+    }
+
+    private static Connection countStatements(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (PREPARING_METHODS.contains(method.getName())) {
+                        RequestStatistics.countStatement((String) args[0]);
+                    }
+                    Object result = invoke(connection, method, args);
+                    // The prepared statements are counted when prepared, the plain ones at each execution
+                    return "createStatement".equals(method.getName()) ? countExecutions((Statement) result) : result;
+                }
+        );
+    }
+
+    private static Statement countExecutions(Statement statement) {
+        return (Statement) Proxy.newProxyInstance(
+                Statement.class.getClassLoader(), new Class<?>[]{Statement.class}, (proxy, method, args) -> {
+                    if (EXECUTING_METHODS.contains(method.getName()) && args != null && args[0] instanceof String) {
+                        RequestStatistics.countStatement((String) args[0]);
+                    }
+                    return invoke(statement, method, args);
+                }
+        );
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package fr.fullstack.shopapp.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Versioned changes of the schema: the scripts db/migration/V<version>__<description>.sql are run once each, in the
+ * order of their versions, and recorded in the schema_migrations table with the checksum of their content. The start
+ * fails when an installed script was changed since. Hibernate still creates the tables and the columns of the mapping
+ * (ddl-auto=update), the scripts run after it and own the indexes.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class SchemaMigrations {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaMigrations.class);
+
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private static final String SCRIPTS = "classpath*:db/migration/V*__*.sql";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PostConstruct
+    public void migrate() throws IOException {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS schema_migrations (version int4 NOT NULL, "
+                + "description varchar(255) NOT NULL, installed_at timestamp NOT NULL, PRIMARY KEY (version))");
+        // Null for the versions installed before the checksums, recorded by the next start
+        jdbcTemplate.execute("ALTER TABLE schema_migrations ADD COLUMN IF NOT EXISTS checksum varchar(32)");
+        Map<Integer, String> installed = new HashMap<>();
+        jdbcTemplate.query("SELECT version, checksum FROM schema_migrations", (RowCallbackHandler) row -> installed.put(
+                row.getInt("version"), row.getString("checksum")
+        ));
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (Migration migration : getMigrations()) {
+            if (installed.containsKey(migration.version)) {
+                checkInstalled(jdbcTemplate, migration, installed.get(migration.version));
+                continue;
+            }
+            // DDL is transactional in PostgreSQL: a failing script leaves neither its changes nor its version
+            transaction.executeWithoutResult(status -> {
+                try {
+                    // Recorded first: another instance migrating at the same time waits for this one, then skips it
+                    jdbcTemplate.update(
+                            "INSERT INTO schema_migrations (version, description, checksum, installed_at) "
+                                    + "VALUES (?, ?, ?, CURRENT_TIMESTAMP)",
+                            migration.version, migration.description, migration.checksum
+                    );
+                } catch (DuplicateKeyException e) {
+                    status.setRollbackOnly();
+                    return;
+                }
+                new ResourceDatabasePopulator(migration.script).execute(dataSource);
+                LOGGER.info("Schema migrated to version {}: {}", migration.version, migration.description);
+            });
+        }
+    }
+
+    private void checkInstalled(JdbcTemplate jdbcTemplate, Migration migration, String checksum) {
+        if (checksum == null) {
+            jdbcTemplate.update(
+                    "UPDATE schema_migrations SET checksum = ? WHERE version = ? AND checksum IS NULL",
+                    migration.checksum, migration.version
+            );
+        } else if (!checksum.equals(migration.checksum)) {
+            throw new IllegalStateException("Migration " + migration.version + " was changed after it was installed: "
+                    + "add the change in a new script");
+        }
+    }
+
+    private List<Migration> getMigrations() throws IOException {
+        TreeMap<Integer, Migration> migrations = new TreeMap<>();
+        for (Resource script : new PathMatchingResourcePatternResolver().getResources(SCRIPTS)) {
+            Matcher name = SCRIPT_NAME.matcher(script.getFilename());
+            if (!name.matches()) {
+                throw new IllegalStateException("Migration " + script.getFilename() + " is not named V<n>__<name>.sql");
+            }
+            // The line endings of the checkout do not change the checksum
+            String content = StreamUtils.copyToString(script.getInputStream(), StandardCharsets.UTF_8)
+                    .replace("\r\n", "\n");
+            Migration migration = new Migration(
+                    Integer.parseInt(name.group(1)),
+                    name.group(2).replace('_', ' '),
+                    script,
+                    DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8))
+            );
+            if (migrations.put(migration.version, migration) != null) {
+                throw new IllegalStateException("Two migrations have the version " + migration.version);
+            }
+        }
+        return List.copyOf(migrations.values());
+    }
+
+    private static class Migration {
+        private final String checksum;
+
+        private final String description;
+
+        private final Resource script;
+
+        private final int version;
+
+        private Migration(int version, String description, Resource script, String checksum) {
+            this.checksum = checksum;
+            this.version = version;
+            this.description = description;
+            this.script = script;
+        }
+    }
+}
@@ -1,7 +1,15 @@
 package fr.fullstack.shopapp.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import fr.fullstack.shopapp.cache.CacheRegions;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.search.engine.backend.types.Aggregable;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.GenericField;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -9,16 +17,22 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.ManyToMany;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
 @Table(name = "categories")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.CATEGORIES)
 public class Category {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pooled_sequence")
+    // Category facet of the product search
+    @GenericField(aggregable = Aggregable.YES)
     private long id;
 
     @Size(min = 1, max = 255, message = "Name must be between 1 and 255 characters")
@@ -26,10 +40,32 @@ public class Category {
     @Column(nullable = false)
     private String name;
 
+    // Only set on the categories of the CategoryCatalog snapshot
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long nbProducts;
+
     @ManyToMany(mappedBy = "categories")
     @JsonIgnore
     private List<Product> products = new ArrayList<Product>();
 
+    // Maintained by the CategoryCounterService, exposed as nbProducts by the CategoryCatalog snapshot only
+    @Column(name = "nb_products", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private long storedNbProducts;
+
+    // Validators of the conditional requests, bumped by the repositories, never written from the entity
+    @Column(name = "updated_at", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    @JsonIgnore
+    private Instant updatedAt;
+
+    @Column(nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private long version;
+
     public long getId() {
         return id;
     }
@@ -38,10 +74,26 @@ public class Category {
         return name;
     }
 
+    public Long getNbProducts() {
+        return nbProducts;
+    }
+
     public List<Product> getProducts() {
         return products;
     }
 
+    public long getStoredNbProducts() {
+        return storedNbProducts;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
     public void setId(long id) {
         this.id = id;
     }
@@ -50,6 +102,10 @@ public class Category {
         this.name = name;
     }
 
+    public void setNbProducts(Long nbProducts) {
+        this.nbProducts = nbProducts;
+    }
+
     public void setProducts(List<Product> products) {
         this.products = products;
     }
@@ -0,0 +1,18 @@
+package fr.fullstack.shopapp.model;
+
+/**
+ * The indexed entities, whose changes go through the indexing outbox.
+ */
+public enum IndexedEntity {
+    PRODUCT(Product.class), SHOP(Shop.class);
+
+    private final Class<?> entityClass;
+
+    IndexedEntity(Class<?> entityClass) {
+        this.entityClass = entityClass;
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+}
@@ -0,0 +1,82 @@
+package fr.fullstack.shopapp.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.Instant;
+
+/**
+ * A change of an indexed entity, written by the transaction that changed it and deleted once the entity is indexed.
+ */
+@Entity
+// The indexes are created by the schema migrations (db/migration)
+@Table(name = "indexing_events")
+public class IndexingEvent {
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "entity_id", nullable = false, updatable = false)
+    private long entityId;
+
+    @Column(name = "entity_type", nullable = false, updatable = false, length = 16)
+    @Enumerated(EnumType.STRING)
+    private IndexedEntity entityType;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pooled_sequence")
+    private long id;
+
+    // Pushed back after each failed attempt
+    @Column(name = "process_after", nullable = false)
+    private Instant processAfter;
+
+    public IndexingEvent() {
+    }
+
+    public IndexingEvent(IndexedEntity entityType, long entityId, Instant createdAt) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.createdAt = createdAt;
+        this.processAfter = createdAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getEntityId() {
+        return entityId;
+    }
+
+    public IndexedEntity getEntityType() {
+        return entityType;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Instant getProcessAfter() {
+        return processAfter;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public void setProcessAfter(Instant processAfter) {
+        this.processAfter = processAfter;
+    }
+}
@@ -1,7 +1,11 @@
 package fr.fullstack.shopapp.model;
 
+import fr.fullstack.shopapp.cache.CacheRegions;
 import fr.fullstack.shopapp.validation.StringEnumeration;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -13,13 +17,15 @@ import javax.validation.constraints.Size;
 
 @Entity
 @Table(name = "LocalizedProduct")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.LOCALIZED_PRODUCTS)
 public class LocalizedProduct {
     @Column
     @Size(min = 1, max = 255, message = "Description must be between 1 and 255 characters")
     private String description;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pooled_sequence")
     private long id;
 
     @Column(nullable = false)
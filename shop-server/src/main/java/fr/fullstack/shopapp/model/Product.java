@@ -1,5 +1,21 @@
 package fr.fullstack.shopapp.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import fr.fullstack.shopapp.cache.CacheRegions;
+import fr.fullstack.shopapp.search.LocalizedTextBinder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.search.engine.backend.types.Aggregable;
+import org.hibernate.search.engine.backend.types.Sortable;
+import org.hibernate.search.mapper.pojo.automaticindexing.ReindexOnUpdate;
+import org.hibernate.search.mapper.pojo.bridge.mapping.annotation.PropertyBinderRef;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.GenericField;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.IndexedEmbedded;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.IndexingDependency;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.PropertyBinding;
+
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -16,35 +32,58 @@ import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.PositiveOrZero;
 import javax.validation.constraints.Size;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
 @Table(name = "products")
+@Indexed(index = "idx_products")
 public class Product {
     @ManyToMany
     @JoinTable(
             name = "products_categories",
             joinColumns = @JoinColumn(name = "product_id"),
             inverseJoinColumns = @JoinColumn(name = "category_id"))
+    @IndexedEmbedded(includePaths = "id")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.PRODUCT_CATEGORIES)
     private List<Category> categories = new ArrayList<Category>();
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pooled_sequence")
+    // Tie-breaker of the search results ranked by relevance
+    @GenericField(sortable = Sortable.YES)
     private long id;
 
     @OneToMany(cascade = {CascadeType.ALL}, orphanRemoval = true)
     @Size(min = 1, message = "At least one name and one description must be provided")
+    @PropertyBinding(binder = @PropertyBinderRef(type = LocalizedTextBinder.class))
+    // The localized products do not know their product: ProductService records it in the indexing outbox
+    @IndexingDependency(reindexOnUpdate = ReindexOnUpdate.SHALLOW)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.PRODUCT_LOCALIZED_PRODUCTS)
     private List<@Valid LocalizedProduct> localizedProduct = new ArrayList<LocalizedProduct>();
 
     @Column(nullable = false)
     @PositiveOrZero(message = "Price must be positive")
     @NotNull(message = "Price may not be null")
+    @GenericField(aggregable = Aggregable.YES)
     private float price;
 
     @ManyToOne
+    @IndexedEmbedded(includePaths = "id")
     private Shop shop;
 
+    // Validators of the conditional requests, bumped by the repositories, never written from the entity
+    @Column(name = "updated_at", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    @JsonIgnore
+    private Instant updatedAt;
+
+    @Column(nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private long version;
+
     public List<Category> getCategories() {
         return categories;
     }
@@ -65,6 +104,14 @@ public class Product {
         return shop;
     }
 
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
     public void setCategories(List<Category> categories) {
         this.categories = categories;
     }
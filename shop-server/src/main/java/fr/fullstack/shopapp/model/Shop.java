@@ -2,8 +2,13 @@ package fr.fullstack.shopapp.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import fr.fullstack.shopapp.cache.CacheRegions;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
-import org.hibernate.annotations.Formula;
+import org.hibernate.search.engine.backend.types.Aggregable;
+import org.hibernate.search.engine.backend.types.Sortable;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.GenericField;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
@@ -20,21 +25,32 @@ import javax.persistence.Table;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+// The indexes are created by the schema migrations (db/migration)
 @Table(name = "shops")
 @Indexed(index = "idx_shops")
 public class Shop {
+    // Price statistics of the products, maintained by ShopCounterService like the counters, 0 without products.
+    // Doubles like the columns, a float would not read back the key of a cursor exactly.
+    @Column(name = "avg_price", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private double avgPrice;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     @JsonFormat(pattern = "yyyy-MM-dd")
+    @GenericField
     private LocalDate createdAt;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pooled_sequence")
+    // Tie-breaker of the search results ranked by relevance, shop facet of the product search
+    @GenericField(sortable = Sortable.YES, aggregable = Aggregable.YES)
     private long id;
 
     @Column(nullable = false)
@@ -42,22 +58,63 @@ public class Shop {
     @GenericField
     private boolean inVacations;
 
+    @Column(name = "max_price", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private double maxPrice;
+
+    @Column(name = "min_price", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private double minPrice;
+
     @Column(nullable = false)
     @Size(min = 1, max = 255, message = "Name must be between 1 and 255 characters")
     @NotNull(message = "Name may not be null")
     @FullTextField
     private String name;
 
-    @Formula(value = "(SELECT COUNT(*) FROM products p WHERE p.shop_id = id)")
-    private Long nbProducts;
+    // Counters maintained by ShopCounterService, never written from the entity
+    @Column(name = "nb_categories", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private long nbCategories;
+
+    @Column(name = "nb_products", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private long nbProducts;
 
     @OneToMany(cascade = {CascadeType.ALL})
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.SHOP_OPENING_HOURS)
     private List<@Valid OpeningHoursShop> openingHours = new ArrayList<OpeningHoursShop>();
 
+    // Opening hours as a bitmap (see WeeklySchedule), computed by ShopService
+    @Column(name = "opening_schedule", length = WeeklySchedule.SLOTS_PER_WEEK / 8)
+    @JsonIgnore
+    private byte[] openingSchedule;
+
     @OneToMany(mappedBy = "shop", fetch = FetchType.LAZY)
     @JsonIgnore
     private List<Product> products = new ArrayList<Product>();
 
+    // Sum of the prices, from which the average is maintained
+    @Column(name = "total_price", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private double totalPrice;
+
+    // Validators of the conditional requests, bumped by the repositories, never written from the entity
+    @Column(name = "updated_at", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    @JsonIgnore
+    private Instant updatedAt;
+
+    @Column(nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private long version;
+
+    public double getAvgPrice() {
+        return avgPrice;
+    }
+
     public LocalDate getCreatedAt() {
         return createdAt;
     }
@@ -70,10 +127,22 @@ public class Shop {
         return inVacations;
     }
 
+    public double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public double getMinPrice() {
+        return minPrice;
+    }
+
     public String getName() {
         return name;
     }
 
+    public long getNbCategories() {
+        return nbCategories;
+    }
+
     public long getNbProducts() {
         return nbProducts;
     }
@@ -82,10 +151,22 @@ public class Shop {
         return openingHours;
     }
 
+    public byte[] getOpeningSchedule() {
+        return openingSchedule;
+    }
+
     public List<Product> getProducts() {
         return this.products;
     }
 
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
     public void setId(long id) {
         this.id = id;
     }
@@ -98,6 +179,10 @@ public class Shop {
         this.name = name;
     }
 
+    public void setNbCategories(long nbCategories) {
+        this.nbCategories = nbCategories;
+    }
+
     public void setNbProducts(long nbProducts) {
         this.nbProducts = nbProducts;
     }
@@ -106,6 +191,10 @@ public class Shop {
         this.openingHours = openingHours;
     }
 
+    public void setOpeningSchedule(byte[] openingSchedule) {
+        this.openingSchedule = openingSchedule;
+    }
+
     public void setProducts(List<Product> products) {
         this.products = products;
     }
@@ -0,0 +1,44 @@
+package fr.fullstack.shopapp.model;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Opening hours of a week as a bitmap of 15-minute slots: the bit (day - 1) * 96 + slot of the day is set when the
+ * shop is open at the start of that slot, day 1 being monday. Bits are numbered from the least significant bit of
+ * each byte, as get_bit does on a PostgreSQL bytea. Hours closing before they open end the next day.
+ */
+public class WeeklySchedule {
+    public static final int SLOTS_PER_DAY = 96;
+
+    public static final int SLOTS_PER_WEEK = 7 * SLOTS_PER_DAY;
+
+    private static final int SLOT_SECONDS = 24 * 60 * 60 / SLOTS_PER_DAY;
+
+    public static byte[] of(List<OpeningHoursShop> openingHours) {
+        BitSet slots = new BitSet(SLOTS_PER_WEEK);
+        for (OpeningHoursShop hours : openingHours) {
+            int dayStart = ((int) hours.getDay() - 1) * SLOTS_PER_DAY;
+            int open = dayStart + ceilSlot(hours.getOpenAt());
+            int close = dayStart + ceilSlot(hours.getCloseAt());
+            if (!hours.getCloseAt().isAfter(hours.getOpenAt())) {
+                close += SLOTS_PER_DAY;
+            }
+            for (int slot = open; slot < close; slot++) {
+                slots.set(slot % SLOTS_PER_WEEK);
+            }
+        }
+        // toByteArray drops the trailing empty bytes
+        return Arrays.copyOf(slots.toByteArray(), SLOTS_PER_WEEK / 8);
+    }
+
+    public static int getSlot(int day, LocalTime time) {
+        return (day - 1) * SLOTS_PER_DAY + time.toSecondOfDay() / SLOT_SECONDS;
+    }
+
+    private static int ceilSlot(LocalTime time) {
+        return (time.toSecondOfDay() + SLOT_SECONDS - 1) / SLOT_SECONDS;
+    }
+}
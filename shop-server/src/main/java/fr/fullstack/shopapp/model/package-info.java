@@ -0,0 +1,17 @@
+/**
+ * All the entities share hibernate_sequence. Its values are reserved by blocks of 50 (the sequence is incremented by
+ * 50), so that inserting many entities does not cost a sequence call per row.
+ */
+@GenericGenerator(
+        name = "pooled_sequence",
+        strategy = "enhanced-sequence",
+        parameters = {
+                @Parameter(name = "sequence_name", value = "hibernate_sequence"),
+                @Parameter(name = "increment_size", value = "50"),
+                @Parameter(name = "optimizer", value = "pooled")
+        }
+)
+package fr.fullstack.shopapp.model;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
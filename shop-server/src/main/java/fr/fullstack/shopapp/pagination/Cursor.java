@@ -0,0 +1,61 @@
+package fr.fullstack.shopapp.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a list sorted on (sort key, id). Clients only see its opaque encoded form.
+ */
+public class Cursor {
+    private static final String SEPARATOR = "\n";
+
+    private final boolean backward;
+
+    private final long id;
+
+    private final String key;
+
+    private final String sort;
+
+    public Cursor(String sort, String key, long id, boolean backward) {
+        this.sort = sort;
+        this.key = key;
+        this.id = id;
+        this.backward = backward;
+    }
+
+    public static Cursor decode(String token) throws Exception {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                    .split(SEPARATOR, 4);
+            return new Cursor(parts[0], parts[3], Long.parseLong(parts[2]), parts[1].equals("<"));
+        } catch (RuntimeException e) {
+            throw new Exception("Invalid cursor " + token);
+        }
+    }
+
+    public String encode() {
+        String value = sort + SEPARATOR + (backward ? "<" : ">") + SEPARATOR + id + SEPARATOR + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public boolean isBackward() {
+        return backward;
+    }
+
+    public Cursor reverse() {
+        return new Cursor(sort, key, id, !backward);
+    }
+}
@@ -0,0 +1,72 @@
+package fr.fullstack.shopapp.pagination;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page of a list read with keyset pagination. The cursors are null when there is nothing in that direction.
+ */
+public class CursorPage<T> {
+    private final List<T> content;
+
+    private final String nextCursor;
+
+    private final String previousCursor;
+
+    private final int size;
+
+    public CursorPage(List<T> content, int size, String previousCursor, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.previousCursor = previousCursor;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Builds a page from rows read with a limit of size + 1, in the reading direction of the cursor.
+     *
+     * @param cursorOf gives the forward cursor positioned on an element
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, Cursor cursor, Function<T, Cursor> cursorOf) {
+        boolean hasMore = rows.size() > size;
+        List<T> content = new ArrayList<>(rows.subList(0, Math.min(size, rows.size())));
+        if (content.isEmpty()) {
+            return new CursorPage<>(content, size, null, null);
+        }
+
+        if (cursor != null && cursor.isBackward()) {
+            Collections.reverse(content);
+            return new CursorPage<>(
+                    content,
+                    size,
+                    hasMore ? cursorOf.apply(content.get(0)).reverse().encode() : null,
+                    cursorOf.apply(content.get(content.size() - 1)).encode()
+            );
+        }
+
+        return new CursorPage<>(
+                content,
+                size,
+                cursor != null ? cursorOf.apply(content.get(0)).reverse().encode() : null,
+                hasMore ? cursorOf.apply(content.get(content.size() - 1)).encode() : null
+        );
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,26 @@
+package fr.fullstack.shopapp.pagination;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+
+public class EstimatedPage {
+    /**
+     * Turns a slice into a page whose total is an estimate. The estimate is corrected with what the slice tells: it
+     * is exact on the last page, and there is at least one more element when the slice has a next one.
+     */
+    public static <T> Page<T> of(Slice<T> slice, long estimate) {
+        long offset = slice.getPageable().isPaged() ? slice.getPageable().getOffset() : 0;
+        long seen = offset + slice.getNumberOfElements();
+        long total;
+        if (slice.hasNext()) {
+            total = Math.max(estimate, seen + 1);
+        } else if (slice.hasContent() || offset == 0) {
+            total = seen;
+        } else {
+            // Page past the end: the total is somewhere before its offset
+            total = Math.min(estimate, offset);
+        }
+        return new PageImpl<>(slice.getContent(), slice.getPageable(), total);
+    }
+}
@@ -0,0 +1,67 @@
+package fr.fullstack.shopapp.pagination;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The elements read by their ids, in the order of the requested ids, and the ids that were not found.
+ */
+public class MultiGetResult<T> {
+    public static final int MAX_IDS = 500;
+
+    private final List<T> content;
+
+    private final List<Long> notFound;
+
+    public MultiGetResult(List<T> content, List<Long> notFound) {
+        this.content = content;
+        this.notFound = notFound;
+    }
+
+    /**
+     * Checks the number of requested ids and removes the duplicates, keeping the order of the first occurrences.
+     */
+    public static List<Long> getDistinctIds(List<Long> ids) throws Exception {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        distinctIds.remove(null);
+        if (distinctIds.isEmpty()) {
+            throw new Exception("At least one id must be provided");
+        }
+        if (distinctIds.size() > MAX_IDS) {
+            throw new Exception("At most " + MAX_IDS + " ids can be requested");
+        }
+        return new ArrayList<>(distinctIds);
+    }
+
+    /**
+     * @param found the elements read in any order
+     */
+    public static <T> MultiGetResult<T> of(List<Long> ids, Iterable<T> found, Function<T, Long> idOf) {
+        Map<Long, T> foundById = new HashMap<>();
+        found.forEach(element -> foundById.put(idOf.apply(element), element));
+        List<T> content = new ArrayList<>(foundById.size());
+        List<Long> notFound = new ArrayList<>();
+        for (Long id : ids) {
+            T element = foundById.get(id);
+            if (element == null) {
+                notFound.add(id);
+            } else {
+                content.add(element);
+            }
+        }
+        return new MultiGetResult<>(content, notFound);
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public List<Long> getNotFound() {
+        return notFound;
+    }
+}
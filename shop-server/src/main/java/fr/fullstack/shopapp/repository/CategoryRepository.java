@@ -1,10 +1,45 @@
 package fr.fullstack.shopapp.repository;
 
 import fr.fullstack.shopapp.model.Category;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 
 public interface CategoryRepository extends JpaRepository<Category, Long> {
-    Page<Category> findByOrderByIdAsc(Pageable pageable);
+    // Query space of the updates of the counters. The counters are only read by the CategoryCatalog, from the
+    // database: the cached categories are left as they are.
+    String COUNTERS = "category_counters";
+
+    // Read by the CategoryCatalog when the categories change, not from the second-level cache
+    List<Category> findAllByOrderByIdAsc();
+
+    // Rows of [category id, number of products], read by the CategoryCatalog after the writes of the products
+    @Query("SELECT c.id, c.storedNbProducts FROM Category c WHERE c.id IN ?1")
+    List<Object[]> findNbProducts(Collection<Long> categoryIds);
+
+    // COUNTERS
+    // The categories are not touched: their responses only carry the counter through the CategoryCatalog
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES, value = COUNTERS))
+    @Query(value = "UPDATE categories SET nb_products = nb_products + ?2 WHERE id = ?1", nativeQuery = true)
+    int addToNbProducts(long categoryId, long delta);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES, value = COUNTERS))
+    @Query(
+            value = "UPDATE categories SET "
+                    + "nb_products = (SELECT COUNT(*) FROM products_categories pc WHERE pc.category_id = categories.id)",
+            nativeQuery = true
+    )
+    int rebuildCounters();
+
+    // VERSION
+    @Modifying
+    @Query("UPDATE Category c SET c.version = c.version + 1, c.updatedAt = CURRENT_TIMESTAMP WHERE c.id = ?1")
+    int touch(long categoryId);
 }
@@ -0,0 +1,52 @@
+package fr.fullstack.shopapp.repository;
+
+import fr.fullstack.shopapp.model.IndexingEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface IndexingEventRepository extends JpaRepository<IndexingEvent, Long> {
+    long countByAttemptsGreaterThan(int attempts);
+
+    @Query("SELECT MIN(e.createdAt) FROM IndexingEvent e")
+    Optional<Instant> findOldestCreatedAt();
+
+    // CASCADES
+    // One statement whatever the number of products, run before they lose their shop or category. Each event takes
+    // a whole block of the pooled sequence, so its id is never handed out by Hibernate.
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES, value = "indexing_events"))
+    @Query(
+            value = "INSERT INTO indexing_events (id, attempts, created_at, entity_id, entity_type, process_after) "
+                    + "SELECT nextval('hibernate_sequence'), 0, ?2, pc.product_id, 'PRODUCT', ?2 "
+                    + "FROM products_categories pc WHERE pc.category_id = ?1",
+            nativeQuery = true
+    )
+    int insertProductsOfCategory(long categoryId, Instant createdAt);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES, value = "indexing_events"))
+    @Query(
+            value = "INSERT INTO indexing_events (id, attempts, created_at, entity_id, entity_type, process_after) "
+                    + "SELECT nextval('hibernate_sequence'), 0, ?2, p.id, 'PRODUCT', ?2 "
+                    + "FROM products p WHERE p.shop_id = ?1",
+            nativeQuery = true
+    )
+    int insertProductsOfShop(long shopId, Instant createdAt);
+
+    // PROCESSING
+    // SKIP LOCKED: the events taken by the worker of another node are left to it (-2 is the Hibernate value)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM IndexingEvent e WHERE e.processAfter <= ?1 ORDER BY e.processAfter, e.id")
+    List<IndexingEvent> findReady(Instant now, Pageable pageable);
+}
@@ -0,0 +1,44 @@
+package fr.fullstack.shopapp.repository;
+
+import java.util.Optional;
+
+/**
+ * Filters of the product search. An empty value does not filter.
+ */
+public class ProductFilter {
+    private final Optional<Long> categoryId;
+
+    private final Optional<Float> maxPrice;
+
+    private final Optional<Float> minPrice;
+
+    private final Optional<Long> shopId;
+
+    public ProductFilter(
+            Optional<Long> shopId,
+            Optional<Long> categoryId,
+            Optional<Float> minPrice,
+            Optional<Float> maxPrice
+    ) {
+        this.shopId = shopId;
+        this.categoryId = categoryId;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    public Optional<Long> getCategoryId() {
+        return categoryId;
+    }
+
+    public Optional<Float> getMaxPrice() {
+        return maxPrice;
+    }
+
+    public Optional<Float> getMinPrice() {
+        return minPrice;
+    }
+
+    public Optional<Long> getShopId() {
+        return shopId;
+    }
+}
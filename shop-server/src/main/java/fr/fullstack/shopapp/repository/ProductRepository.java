@@ -3,17 +3,98 @@ package fr.fullstack.shopapp.repository;
 import fr.fullstack.shopapp.model.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
+    // The shop is fetched with the products, the collections are batch fetched (see LazyLoading)
+    @EntityGraph(attributePaths = "shop")
     Page<Product> findByOrderByIdAsc(Pageable pageable);
 
-    @Query(value = "SELECT * FROM Products WHERE shop_id = ?1", nativeQuery = true)
+    // One IN query for the multi-get
+    @EntityGraph(attributePaths = "shop")
+    List<Product> findByIdIn(Collection<Long> ids);
+
+    @EntityGraph(attributePaths = "shop")
+    @Query(value = "SELECT p FROM Product p WHERE p.shop.id = ?1",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.shop.id = ?1")
     Page<Product> findByShop(Long shopId, Pageable pageable);
 
-    @Query(value = "SELECT * FROM Products p WHERE p.shop_id = ?1 AND p.id IN (SELECT pc.product_id FROM "
-            + "products_categories pc WHERE pc.category_id = ?2)",
-           nativeQuery = true)
+    @EntityGraph(attributePaths = "shop")
+    @Query(value = "SELECT p FROM Product p JOIN p.categories c WHERE p.shop.id = ?1 AND c.id = ?2",
+           countQuery = "SELECT COUNT(p) FROM Product p JOIN p.categories c WHERE p.shop.id = ?1 AND c.id = ?2")
     Page<Product> findByShopAndCategory(Long shopId, Long categoryId, Pageable pageable);
+
+    // SLICE
+    @EntityGraph(attributePaths = "shop")
+    Slice<Product> findSliceByOrderByIdAsc(Pageable pageable);
+
+    @EntityGraph(attributePaths = "shop")
+    Slice<Product> findSliceByShopIdAndCategoriesIdOrderByIdAsc(long shopId, long categoryId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "shop")
+    Slice<Product> findSliceByShopIdOrderByIdAsc(long shopId, Pageable pageable);
+
+    // KEYSET
+    @EntityGraph(attributePaths = "shop")
+    List<Product> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = "shop")
+    List<Product> findByIdLessThanOrderByIdDesc(long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = "shop")
+    List<Product> findByShopIdAndCategoriesIdAndIdGreaterThanOrderByIdAsc(
+            long shopId, long categoryId, long id, Pageable pageable
+    );
+
+    @EntityGraph(attributePaths = "shop")
+    List<Product> findByShopIdAndCategoriesIdAndIdLessThanOrderByIdDesc(
+            long shopId, long categoryId, long id, Pageable pageable
+    );
+
+    @EntityGraph(attributePaths = "shop")
+    List<Product> findByShopIdAndIdGreaterThanOrderByIdAsc(long shopId, long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = "shop")
+    List<Product> findByShopIdAndIdLessThanOrderByIdDesc(long shopId, long id, Pageable pageable);
+
+    // EXPORT
+    // Read through a forward-only cursor, the rows are fetched by blocks instead of being loaded at once
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.shop ORDER BY p.id")
+    Stream<Product> streamAllByOrderByIdAsc();
+
+    // DELETION
+    // Set-based: the products of the deleted shop or category are neither loaded nor flushed one by one
+    @Modifying
+    @Query("UPDATE Product p SET p.shop = NULL, p.version = p.version + 1, p.updatedAt = CURRENT_TIMESTAMP "
+            + "WHERE p.shop.id = ?1")
+    int detachFromShop(long shopId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES, value = "products_categories"))
+    @Query(value = "DELETE FROM products_categories WHERE category_id = ?1", nativeQuery = true)
+    int removeCategory(long categoryId);
+
+    // VERSION
+    @Modifying
+    @Query("UPDATE Product p SET p.version = p.version + 1, p.updatedAt = CURRENT_TIMESTAMP WHERE p.id = ?1")
+    int touch(long productId);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.version = p.version + 1, p.updatedAt = CURRENT_TIMESTAMP "
+            + "WHERE p.id IN (SELECT pc.id FROM Product pc JOIN pc.categories c WHERE c.id = ?1)")
+    int touchByCategory(long categoryId);
 }
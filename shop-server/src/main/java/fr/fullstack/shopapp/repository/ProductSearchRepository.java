@@ -0,0 +1,122 @@
+package fr.fullstack.shopapp.repository;
+
+import fr.fullstack.shopapp.model.Locale;
+import fr.fullstack.shopapp.model.Product;
+import fr.fullstack.shopapp.search.FacetCount;
+import fr.fullstack.shopapp.search.LocalizedTextBinder;
+import fr.fullstack.shopapp.search.PriceRangeCount;
+import fr.fullstack.shopapp.search.ProductSearchPage;
+import org.hibernate.search.engine.search.aggregation.AggregationKey;
+import org.hibernate.search.engine.search.predicate.dsl.BooleanPredicateClausesStep;
+import org.hibernate.search.engine.search.predicate.dsl.MatchPredicateFieldMoreStep;
+import org.hibernate.search.engine.search.predicate.dsl.PredicateFinalStep;
+import org.hibernate.search.engine.search.predicate.dsl.SearchPredicateFactory;
+import org.hibernate.search.engine.search.query.SearchResult;
+import org.hibernate.search.mapper.orm.Search;
+import org.hibernate.search.util.common.data.Range;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Full-text search of the products in their localized names and descriptions, ranked by relevance then by id. The
+ * facet counts are computed by the search engine on all the hits, in the same request as the page.
+ */
+@Repository
+public class ProductSearchRepository {
+    private static final int MAX_FACET_COUNTS = 50;
+
+    private static final float NAME_BOOST = 2;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * @param priceBounds ascending bounds of the price ranges, n bounds give n + 1 ranges
+     */
+    public ProductSearchPage search(
+            Optional<String> text,
+            List<Locale> locales,
+            ProductFilter filter,
+            List<Float> priceBounds,
+            Pageable pageable
+    ) {
+        AggregationKey<Map<Long, Long>> categoriesKey = AggregationKey.of("categories");
+        AggregationKey<Map<Long, Long>> shopsKey = AggregationKey.of("shops");
+        AggregationKey<Map<Range<Float>, Long>> pricesKey = AggregationKey.of("prices");
+
+        SearchResult<Product> result = Search.session(em).search(Product.class)
+                .where(f -> getPredicate(f, text, locales, filter))
+                .sort(f -> f.score().then().field("id"))
+                .aggregation(categoriesKey, f -> f.terms().field("categories.id", Long.class)
+                        .maxTermCount(MAX_FACET_COUNTS))
+                .aggregation(shopsKey, f -> f.terms().field("shop.id", Long.class)
+                        .maxTermCount(MAX_FACET_COUNTS))
+                .aggregation(pricesKey, f -> f.range().field("price", Float.class)
+                        .ranges(getPriceRanges(priceBounds)))
+                .fetch(Math.toIntExact(pageable.getOffset()), pageable.getPageSize());
+
+        List<PriceRangeCount> prices = new ArrayList<>();
+        result.aggregation(pricesKey).forEach((range, count) -> prices.add(new PriceRangeCount(
+                range.lowerBoundValue().orElse(null), range.upperBoundValue().orElse(null), count
+        )));
+        return new ProductSearchPage(
+                result.hits(),
+                pageable.getPageNumber(),
+                pageable.getPageSize(),
+                result.total().hitCount(),
+                getFacetCounts(result.aggregation(categoriesKey)),
+                getFacetCounts(result.aggregation(shopsKey)),
+                prices
+        );
+    }
+
+    private List<FacetCount> getFacetCounts(Map<Long, Long> counts) {
+        // Ordered by decreasing count
+        List<FacetCount> facetCounts = new ArrayList<>();
+        counts.forEach((id, count) -> facetCounts.add(new FacetCount(id, count)));
+        return facetCounts;
+    }
+
+    private PredicateFinalStep getPredicate(
+            SearchPredicateFactory f,
+            Optional<String> text,
+            List<Locale> locales,
+            ProductFilter filter
+    ) {
+        BooleanPredicateClausesStep<?> predicate = f.bool();
+        if (text.isPresent()) {
+            MatchPredicateFieldMoreStep<?, ?> match = null;
+            for (Locale locale : locales) {
+                String nameField = LocalizedTextBinder.getNameField(locale);
+                match = (match == null ? f.match().field(nameField) : match.field(nameField)).boost(NAME_BOOST)
+                        .field(LocalizedTextBinder.getDescriptionField(locale));
+            }
+            predicate.must(match.matching(text.get()));
+        } else {
+            predicate.must(f.matchAll());
+        }
+        filter.getShopId().ifPresent(id -> predicate.filter(f.match().field("shop.id").matching(id)));
+        filter.getCategoryId().ifPresent(id -> predicate.filter(f.match().field("categories.id").matching(id)));
+        filter.getMinPrice().ifPresent(price -> predicate.filter(f.range().field("price").atLeast(price)));
+        filter.getMaxPrice().ifPresent(price -> predicate.filter(f.range().field("price").atMost(price)));
+        return predicate;
+    }
+
+    private List<Range<Float>> getPriceRanges(List<Float> bounds) {
+        List<Range<Float>> ranges = new ArrayList<>();
+        Float lower = null;
+        for (Float bound : bounds) {
+            ranges.add(Range.canonical(lower, bound));
+            lower = bound;
+        }
+        ranges.add(Range.canonical(lower, null));
+        return ranges;
+    }
+}
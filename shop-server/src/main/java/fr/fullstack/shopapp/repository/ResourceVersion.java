@@ -0,0 +1,27 @@
+package fr.fullstack.shopapp.repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Validators of a response: the entity tag changes with every change of the response, the last modification date
+ * is absent for the lists (a deletion leaves no date behind).
+ */
+public class ResourceVersion {
+    private final String eTag;
+
+    private final Optional<Instant> lastModified;
+
+    public ResourceVersion(String eTag, Optional<Instant> lastModified) {
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public Optional<Instant> getLastModified() {
+        return lastModified;
+    }
+}
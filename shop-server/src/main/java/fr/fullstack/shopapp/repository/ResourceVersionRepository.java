@@ -0,0 +1,100 @@
+package fr.fullstack.shopapp.repository;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.stream.Stream;
+
+/**
+ * Reads the validators of the shop and product responses from the version and updated_at columns, without loading
+ * the entities, and those of the lists from the table_versions table.
+ */
+@Repository
+public class ResourceVersionRepository {
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * A product response also contains its shop and its categories.
+     */
+    public Optional<ResourceVersion> findProductVersion(long id) {
+        List<?> rows = em.createNativeQuery(
+                        "SELECT p.version, s.version AS shop_version, COUNT(c.id) AS nb_categories, "
+                                + "COALESCE(SUM(c.version), 0) AS categories_version, p.updated_at, "
+                                + "s.updated_at AS shop_updated_at, MAX(c.updated_at) AS categories_updated_at "
+                                + "FROM products p "
+                                + "LEFT JOIN shops s ON s.id = p.shop_id "
+                                + "LEFT JOIN products_categories pc ON pc.product_id = p.id "
+                                + "LEFT JOIN categories c ON c.id = pc.category_id "
+                                + "WHERE p.id = ?1 "
+                                + "GROUP BY p.id, p.version, p.updated_at, s.id, s.version, s.updated_at")
+                .setParameter(1, id)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Object[] row = (Object[]) rows.get(0);
+        String eTag = "product-" + id + "-" + row[0] + "-" + Objects.toString(row[1], "none") + "-" + row[2] + "-"
+                + row[3];
+        Optional<Instant> lastModified = Stream.of(row[4], row[5], row[6])
+                .filter(Objects::nonNull)
+                .map(date -> ((Timestamp) date).toInstant())
+                .max(Instant::compareTo);
+        return Optional.of(new ResourceVersion(eTag, lastModified));
+    }
+
+    public Optional<ResourceVersion> findShopVersion(long id) {
+        List<?> rows = em.createNativeQuery("SELECT version, updated_at FROM shops WHERE id = ?1")
+                .setParameter(1, id)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Object[] row = (Object[]) rows.get(0);
+        return Optional.of(new ResourceVersion(
+                "shop-" + id + "-" + row[0], Optional.of(((Timestamp) row[1]).toInstant())
+        ));
+    }
+
+    /**
+     * Version of whole tables, for the lists, read from their rows of table_versions. A table without a row is at
+     * version 0.
+     */
+    public ResourceVersion findTablesVersion(String... tables) {
+        Map<String, Object> versions = new HashMap<>();
+        for (Object row : em.createNativeQuery(
+                        "SELECT table_name, version FROM table_versions WHERE table_name IN (?1)")
+                .setParameter(1, Arrays.asList(tables))
+                .getResultList()) {
+            versions.put((String) ((Object[]) row)[0], ((Object[]) row)[1]);
+        }
+        StringJoiner eTag = new StringJoiner("-");
+        for (String table : tables) {
+            eTag.add(table).add(versions.getOrDefault(table, 0).toString());
+        }
+        return new ResourceVersion(eTag.toString(), Optional.empty());
+    }
+
+    public int touchTables(Collection<String> tables) {
+        // Synchronized with table_versions only, which no entity maps: the second-level cache is left as it is
+        return em.createNativeQuery("UPDATE table_versions SET version = version + 1 WHERE table_name IN (?1)")
+                .setParameter(1, tables)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("table_versions")
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,33 @@
+package fr.fullstack.shopapp.repository;
+
+/**
+ * Number of products of a shop in one of the categories.
+ */
+public class ShopCategoryCount {
+    private final long id;
+
+    private String name;
+
+    private final long nbProducts;
+
+    public ShopCategoryCount(long id, long nbProducts) {
+        this.id = id;
+        this.nbProducts = nbProducts;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getNbProducts() {
+        return nbProducts;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
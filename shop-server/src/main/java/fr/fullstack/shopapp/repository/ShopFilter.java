@@ -0,0 +1,51 @@
+package fr.fullstack.shopapp.repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Filters of the shop listing. An empty value does not filter.
+ */
+public class ShopFilter {
+    private final Optional<LocalDate> createdAfter;
+
+    private final Optional<LocalDate> createdBefore;
+
+    private final Optional<Boolean> inVacations;
+
+    // Slot of the week the shops must be open at, see WeeklySchedule
+    private final Optional<Integer> openSlot;
+
+    public ShopFilter(
+            Optional<Boolean> inVacations,
+            Optional<LocalDate> createdAfter,
+            Optional<LocalDate> createdBefore,
+            Optional<Integer> openSlot
+    ) {
+        this.inVacations = inVacations;
+        this.createdAfter = createdAfter;
+        this.createdBefore = createdBefore;
+        this.openSlot = openSlot;
+    }
+
+    public Optional<LocalDate> getCreatedAfter() {
+        return createdAfter;
+    }
+
+    public Optional<LocalDate> getCreatedBefore() {
+        return createdBefore;
+    }
+
+    public Optional<Boolean> getInVacations() {
+        return inVacations;
+    }
+
+    public Optional<Integer> getOpenSlot() {
+        return openSlot;
+    }
+
+    public boolean isEmpty() {
+        return !inVacations.isPresent() && !createdAfter.isPresent() && !createdBefore.isPresent()
+                && !openSlot.isPresent();
+    }
+}
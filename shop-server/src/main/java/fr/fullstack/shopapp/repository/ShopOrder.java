@@ -0,0 +1,59 @@
+package fr.fullstack.shopapp.repository;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * A sort of the shop listing and its direction, the default direction of the sort unless another one is requested.
+ */
+public class ShopOrder {
+    private final Sort.Direction direction;
+
+    private final ShopSort sort;
+
+    public ShopOrder(ShopSort sort, Sort.Direction direction) {
+        this.sort = sort;
+        this.direction = direction;
+    }
+
+    public static ShopOrder fromParameters(Optional<String> sortBy, Optional<String> sortDirection) throws Exception {
+        ShopSort sort = ShopSort.fromParameter(sortBy);
+        if (!sortDirection.isPresent()) {
+            return of(sort);
+        }
+
+        Optional<Sort.Direction> direction = Sort.Direction.fromOptionalString(sortDirection.get());
+        if (!direction.isPresent()) {
+            throw new Exception("sortDirection must be asc or desc");
+        }
+        return new ShopOrder(sort, direction.get());
+    }
+
+    public static ShopOrder of(ShopSort sort) {
+        return new ShopOrder(sort, sort.getDirection());
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * Name of the order in the cursors: the property, followed by the direction when it is not the default one.
+     */
+    public String getName() {
+        if (direction == sort.getDirection()) {
+            return sort.getProperty();
+        }
+        return sort.getProperty() + "," + direction.name().toLowerCase(Locale.ROOT);
+    }
+
+    public ShopSort getSort() {
+        return sort;
+    }
+
+    public boolean isDescending() {
+        return direction.isDescending();
+    }
+}
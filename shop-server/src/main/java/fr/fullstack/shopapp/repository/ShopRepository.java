@@ -1,50 +1,163 @@
 package fr.fullstack.shopapp.repository;
 
 import fr.fullstack.shopapp.model.Shop;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
-import java.time.LocalDate;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.stream.Stream;
 
-public interface ShopRepository extends JpaRepository<Shop, Long> {
-    Page<Shop> findByCreatedAtBetween(LocalDate dateStart, LocalDate dateEnd, Pageable pageable);
+public interface ShopRepository extends JpaRepository<Shop, Long>, ShopRepositoryCustom {
+    // Query space of the updates of the statistics, which no cached entity holds: they evict no region of the
+    // second-level cache.
+    String STATISTICS = "shop_statistics";
 
-    Page<Shop> findByCreatedAtGreaterThan(LocalDate date, Pageable pageable);
+    // CATEGORY COUNTERS
+    // Products of each category in each shop. The rows are created at 0 and never deleted with the products: a
+    // concurrent increment of the same row is never lost.
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES, value = "shop_categories"))
+    @Query(
+            value = "UPDATE shop_categories SET nb_products = nb_products + ?3 WHERE shop_id = ?1 AND category_id = ?2",
+            nativeQuery = true
+    )
+    int addToNbProductsOfCategory(long shopId, long categoryId, long delta);
 
-    Page<Shop> findByCreatedAtLessThan(LocalDate date, Pageable pageable);
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES, value = "shop_categories"))
+    @Query(value = "DELETE FROM shop_categories WHERE category_id = ?1", nativeQuery = true)
+    int deleteCategoryCounters(long categoryId);
 
-    // FILTERS
-    Page<Shop> findByInVacations(boolean inVacations, Pageable pageable);
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES, value = "shop_categories"))
+    @Query(
+            value = "INSERT INTO shop_categories (shop_id, category_id, nb_products) "
+                    + "SELECT DISTINCT p.shop_id, pc.category_id, 0 FROM products p "
+                    + "JOIN products_categories pc ON pc.product_id = p.id WHERE p.shop_id IS NOT NULL "
+                    + "ON CONFLICT DO NOTHING",
+            nativeQuery = true
+    )
+    int insertAllCategoryCounters();
 
-    Page<Shop> findByInVacationsAndCreatedAtGreaterThan(boolean inVacations, LocalDate date, Pageable pageable);
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES, value = "shop_categories"))
+    @Query(
+            value = "INSERT INTO shop_categories (shop_id, category_id, nb_products) "
+                    + "SELECT ?1, c.id, 0 FROM categories c WHERE c.id IN ?2 ON CONFLICT DO NOTHING",
+            nativeQuery = true
+    )
+    int insertCategoryCounters(long shopId, Collection<Long> categoryIds);
 
-    Page<Shop> findByInVacationsAndCreatedAtGreaterThanAndCreatedAtLessThan(
-            boolean inVacations, LocalDate dateStart,
-            LocalDate dateEnd, Pageable pageable
-    );
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES, value = "shop_categories"))
+    @Query(
+            value = "UPDATE shop_categories SET "
+                    + "nb_products = (SELECT COUNT(*) FROM products_categories pc "
+                    + "JOIN products p ON p.id = pc.product_id "
+                    + "WHERE p.shop_id = shop_categories.shop_id AND pc.category_id = shop_categories.category_id)",
+            nativeQuery = true
+    )
+    int rebuildCategoryCounters();
 
-    Page<Shop> findByInVacationsAndCreatedAtLessThan(boolean inVacations, LocalDate date, Pageable pageable);
+    // COUNTERS
+    // Counters and price statistics of the shops: the bounds of the prices only widen with new products
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES, value = STATISTICS))
+    @Query(
+            value = "UPDATE shops SET "
+                    + "min_price = CASE WHEN nb_products = 0 THEN ?3 ELSE LEAST(min_price, ?3) END, "
+                    + "max_price = CASE WHEN nb_products = 0 THEN ?4 ELSE GREATEST(max_price, ?4) END, "
+                    + "avg_price = (total_price + ?5) / (nb_products + ?2), "
+                    + "total_price = total_price + ?5, "
+                    + "nb_products = nb_products + ?2, "
+                    + "nb_categories = (SELECT COUNT(*) FROM shop_categories sc "
+                    + "WHERE sc.shop_id = shops.id AND sc.nb_products > 0), "
+                    + "version = version + 1, updated_at = CURRENT_TIMESTAMP WHERE id = ?1",
+            nativeQuery = true
+    )
+    int addProducts(long shopId, long count, double minPrice, double maxPrice, double totalPrice);
 
-    Page<Shop> findByOrderByCreatedAtAsc(Pageable pageable);
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES, value = STATISTICS))
+    @Query(
+            value = "UPDATE shops SET "
+                    + "nb_products = (SELECT COUNT(*) FROM products p WHERE p.shop_id = shops.id), "
+                    + "nb_categories = (SELECT COUNT(*) FROM shop_categories sc "
+                    + "WHERE sc.shop_id = shops.id AND sc.nb_products > 0), "
+                    + "min_price = COALESCE((SELECT MIN(p.price) FROM products p WHERE p.shop_id = shops.id), 0), "
+                    + "max_price = COALESCE((SELECT MAX(p.price) FROM products p WHERE p.shop_id = shops.id), 0), "
+                    + "avg_price = COALESCE((SELECT AVG(CAST(p.price AS double precision)) FROM products p "
+                    + "WHERE p.shop_id = shops.id), 0), "
+                    + "total_price = COALESCE((SELECT SUM(CAST(p.price AS double precision)) FROM products p "
+                    + "WHERE p.shop_id = shops.id), 0), "
+                    + "version = version + 1, updated_at = CURRENT_TIMESTAMP",
+            nativeQuery = true
+    )
+    int rebuildCounters();
 
-    Page<Shop> findByOrderByIdAsc(Pageable pageable);
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES, value = STATISTICS))
+    @Query(
+            value = "UPDATE shops SET "
+                    + "nb_categories = (SELECT COUNT(*) FROM shop_categories sc "
+                    + "WHERE sc.shop_id = shops.id AND sc.nb_products > 0), "
+                    + "version = version + 1, updated_at = CURRENT_TIMESTAMP WHERE id = ?1",
+            nativeQuery = true
+    )
+    int refreshNbCategories(long shopId);
 
-    // SORT
-    Page<Shop> findByOrderByNameAsc(Pageable pageable);
+    // Run before the category counters are deleted
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES, value = STATISTICS))
+    @Query(
+            value = "UPDATE shops SET nb_categories = nb_categories - 1, "
+                    + "version = version + 1, updated_at = CURRENT_TIMESTAMP "
+                    + "WHERE id IN (SELECT sc.shop_id FROM shop_categories sc "
+                    + "WHERE sc.category_id = ?1 AND sc.nb_products > 0)",
+            nativeQuery = true
+    )
+    int removeCategory(long categoryId);
 
+    // Run once the product has left the shop: the bounds of the prices are read again when it was at one of them
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES, value = STATISTICS))
     @Query(
-            value = "SELECT *,"
-                    + "(SELECT COUNT(*) FROM products p WHERE p.shop_id = s.id) as nbProducts, "
-                    + "(SELECT COUNT(DISTINCT pc.category_id) FROM products_categories pc WHERE pc.product_id IN "
-                    + "(SELECT p.id FROM products p WHERE p.shop_id = s.id)) as nbCategories "
-                    + "FROM shops s "
-                    + "ORDER BY (SELECT COUNT(*) FROM products p WHERE p.shop_id = s.id) DESC",
-            countQuery = "SELECT * "
-                    + "FROM shops s "
-                    + "ORDER BY (SELECT COUNT(*) FROM products p WHERE p.shop_id = s.id) DESC",
+            value = "UPDATE shops SET "
+                    + "min_price = CASE WHEN nb_products <= 1 THEN 0 WHEN min_price < ?2 THEN min_price "
+                    + "ELSE COALESCE((SELECT MIN(p.price) FROM products p WHERE p.shop_id = shops.id), 0) END, "
+                    + "max_price = CASE WHEN nb_products <= 1 THEN 0 WHEN max_price > ?2 THEN max_price "
+                    + "ELSE COALESCE((SELECT MAX(p.price) FROM products p WHERE p.shop_id = shops.id), 0) END, "
+                    + "avg_price = CASE WHEN nb_products <= 1 THEN 0 "
+                    + "ELSE (total_price - ?2) / (nb_products - 1) END, "
+                    + "total_price = CASE WHEN nb_products <= 1 THEN 0 ELSE total_price - ?2 END, "
+                    + "nb_products = nb_products - 1, "
+                    + "nb_categories = (SELECT COUNT(*) FROM shop_categories sc "
+                    + "WHERE sc.shop_id = shops.id AND sc.nb_products > 0), "
+                    + "version = version + 1, updated_at = CURRENT_TIMESTAMP WHERE id = ?1",
             nativeQuery = true
     )
-    Page<Shop> findByOrderByNbProductsAsc(Pageable pageable);
+    int removeProduct(long shopId, float price);
+
+    // EXPORT
+    // Read through a forward-only cursor, the rows are fetched by blocks instead of being loaded at once
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("SELECT s FROM Shop s ORDER BY s.id")
+    Stream<Shop> streamAllByOrderByIdAsc();
+
+    // SCHEDULE
+    // Not returned in the responses, the version is left as is
+    @Modifying
+    @Query("UPDATE Shop s SET s.openingSchedule = ?2 WHERE s.id = ?1")
+    int updateOpeningSchedule(long shopId, byte[] openingSchedule);
+
+    // VERSION
+    @Modifying
+    @Query("UPDATE Shop s SET s.version = s.version + 1, s.updatedAt = CURRENT_TIMESTAMP WHERE s.id = ?1")
+    int touch(long shopId);
 }
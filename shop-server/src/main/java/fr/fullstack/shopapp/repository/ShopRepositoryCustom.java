@@ -0,0 +1,27 @@
+package fr.fullstack.shopapp.repository;
+
+import fr.fullstack.shopapp.model.Shop;
+import fr.fullstack.shopapp.pagination.Cursor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+public interface ShopRepositoryCustom {
+    /**
+     * Reads at most limit shops strictly after the cursor (or from the start without cursor), in the order of the
+     * sort, or in the reverse order for a backward cursor.
+     */
+    List<Shop> findByKeyset(ShopFilter filter, ShopOrder order, Cursor cursor, int limit);
+
+    /**
+     * Reads a page of shops and counts the shops matching the filter.
+     */
+    Page<Shop> findPage(ShopFilter filter, ShopOrder order, Pageable pageable);
+
+    /**
+     * Reads a page of shops without counting them.
+     */
+    Slice<Shop> findSlice(ShopFilter filter, ShopOrder order, Pageable pageable);
+}
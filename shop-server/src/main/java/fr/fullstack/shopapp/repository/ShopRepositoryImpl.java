@@ -0,0 +1,124 @@
+package fr.fullstack.shopapp.repository;
+
+import fr.fullstack.shopapp.model.Shop;
+import fr.fullstack.shopapp.pagination.Cursor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shop listing built with the Criteria API: any mix of the filters of ShopFilter is combined in one query, sorted by
+ * the key of the order then by id in the same direction, which matches the (key, id) indexes of the shops table.
+ */
+public class ShopRepositoryImpl implements ShopRepositoryCustom {
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public List<Shop> findByKeyset(ShopFilter filter, ShopOrder order, Cursor cursor, int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Shop> query = cb.createQuery(Shop.class);
+        Root<Shop> shop = query.from(Shop.class);
+        ShopSort sort = order.getSort();
+        Expression<Comparable> key = shop.get(sort.getProperty());
+        Expression<Long> id = shop.get("id");
+        boolean descending = order.isDescending() != (cursor != null && cursor.isBackward());
+
+        List<Predicate> predicates = getFilterPredicates(cb, shop, filter);
+        if (cursor != null) {
+            Comparable cursorKey = sort.parseKey(cursor.getKey());
+            if (sort == ShopSort.ID) {
+                predicates.add(descending ? cb.lessThan(id, cursor.getId()) : cb.greaterThan(id, cursor.getId()));
+            } else if (descending) {
+                // key <= k AND (key < k OR id < i): the first condition bounds the range scanned on the index
+                predicates.add(cb.lessThanOrEqualTo(key, cursorKey));
+                predicates.add(cb.or(cb.lessThan(key, cursorKey), cb.lessThan(id, cursor.getId())));
+            } else {
+                predicates.add(cb.greaterThanOrEqualTo(key, cursorKey));
+                predicates.add(cb.or(cb.greaterThan(key, cursorKey), cb.greaterThan(id, cursor.getId())));
+            }
+        }
+
+        query.where(predicates.toArray(new Predicate[0]));
+        query.orderBy(getOrders(cb, shop, sort, descending));
+        return em.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Page<Shop> findPage(ShopFilter filter, ShopOrder order, Pageable pageable) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Shop> query = cb.createQuery(Shop.class);
+        Root<Shop> shop = query.from(Shop.class);
+        query.where(getFilterPredicates(cb, shop, filter).toArray(new Predicate[0]));
+        query.orderBy(getOrders(cb, shop, order.getSort(), order.isDescending()));
+        List<Shop> shops = em.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        CriteriaQuery<Long> count = cb.createQuery(Long.class);
+        Root<Shop> countedShop = count.from(Shop.class);
+        count.select(cb.count(countedShop));
+        count.where(getFilterPredicates(cb, countedShop, filter).toArray(new Predicate[0]));
+        return PageableExecutionUtils.getPage(shops, pageable, () -> em.createQuery(count).getSingleResult());
+    }
+
+    @Override
+    public Slice<Shop> findSlice(ShopFilter filter, ShopOrder order, Pageable pageable) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Shop> query = cb.createQuery(Shop.class);
+        Root<Shop> shop = query.from(Shop.class);
+        query.where(getFilterPredicates(cb, shop, filter).toArray(new Predicate[0]));
+        query.orderBy(getOrders(cb, shop, order.getSort(), order.isDescending()));
+
+        // Read one more shop to know if there is a next page
+        List<Shop> shops = em.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = shops.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? shops.subList(0, pageable.getPageSize()) : shops, pageable, hasNext);
+    }
+
+    private List<Predicate> getFilterPredicates(CriteriaBuilder cb, Root<Shop> shop, ShopFilter filter) {
+        List<Predicate> predicates = new ArrayList<>();
+        filter.getInVacations().ifPresent(
+                inVacations -> predicates.add(cb.equal(shop.get("inVacations"), inVacations))
+        );
+        filter.getCreatedAfter().ifPresent(
+                date -> predicates.add(cb.greaterThan(shop.get("createdAt"), date))
+        );
+        filter.getCreatedBefore().ifPresent(
+                date -> predicates.add(cb.lessThan(shop.get("createdAt"), date))
+        );
+        // A bit test on the row, the opening hours are not joined
+        filter.getOpenSlot().ifPresent(slot -> predicates.add(cb.equal(
+                cb.function("get_bit", Integer.class, shop.get("openingSchedule"), cb.literal(slot)), 1
+        )));
+        return predicates;
+    }
+
+    private List<Order> getOrders(CriteriaBuilder cb, Root<Shop> shop, ShopSort sort, boolean descending) {
+        Expression<?> key = shop.get(sort.getProperty());
+        Expression<?> id = shop.get("id");
+        if (descending) {
+            return Arrays.asList(cb.desc(key), cb.desc(id));
+        }
+        return Arrays.asList(cb.asc(key), cb.asc(id));
+    }
+}
@@ -0,0 +1,32 @@
+package fr.fullstack.shopapp.repository;
+
+import fr.fullstack.shopapp.model.Shop;
+
+/**
+ * A shop found by the full-text search, with its relevance score and its rank in the results.
+ */
+public class ShopSearchHit {
+    private final long rank;
+
+    private final float score;
+
+    private final Shop shop;
+
+    public ShopSearchHit(Shop shop, float score, long rank) {
+        this.shop = shop;
+        this.score = score;
+        this.rank = rank;
+    }
+
+    public long getRank() {
+        return rank;
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    public Shop getShop() {
+        return shop;
+    }
+}
@@ -0,0 +1,117 @@
+package fr.fullstack.shopapp.repository;
+
+import com.google.gson.JsonArray;
+import fr.fullstack.shopapp.model.Shop;
+import fr.fullstack.shopapp.pagination.Cursor;
+import org.hibernate.search.backend.elasticsearch.ElasticsearchBackend;
+import org.hibernate.search.backend.elasticsearch.ElasticsearchExtension;
+import org.hibernate.search.engine.search.predicate.SearchPredicate;
+import org.hibernate.search.engine.search.predicate.dsl.BooleanPredicateClausesStep;
+import org.hibernate.search.engine.search.predicate.dsl.SearchPredicateFactory;
+import org.hibernate.search.engine.search.projection.SearchProjection;
+import org.hibernate.search.engine.search.projection.dsl.SearchProjectionFactory;
+import org.hibernate.search.engine.search.sort.SearchSort;
+import org.hibernate.search.mapper.orm.Search;
+import org.hibernate.search.mapper.orm.scope.SearchScope;
+import org.hibernate.search.mapper.orm.session.SearchSession;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Full-text search of the shops, ranked by relevance then by id. A page starts after the last hit of the previous
+ * one: with Elasticsearch, the (score, id) of that hit is sent as search_after, so deep pages cost the same as the
+ * first one. The embedded Lucene backend, meant for a single node, skips the hits already returned.
+ */
+@Repository
+public class ShopSearchRepository {
+    public static final String SORT = "relevance";
+
+    private static final String KEY_SEPARATOR = " ";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    public Cursor getCursor(ShopSearchHit hit) {
+        return new Cursor(SORT, hit.getScore() + KEY_SEPARATOR + hit.getRank(), hit.getShop().getId(), false);
+    }
+
+    public List<ShopSearchHit> search(Optional<String> text, ShopFilter filter, Cursor after, int limit)
+            throws Exception {
+        SearchSession session = Search.session(em);
+        SearchScope<Shop> scope = session.scope(Shop.class);
+        SearchPredicate predicate = getPredicate(scope.predicate(), text, filter);
+        SearchSort sort = scope.sort().score().then().field("id").toSort();
+        SearchProjectionFactory<?, Shop> projection = scope.projection();
+        SearchProjection<List<?>> hit = projection.composite(projection.entity(), projection.score()).toProjection();
+
+        long offset = after == null ? 0 : getRank(after) + 1;
+        List<List<?>> rows;
+        if (after != null && isElasticsearch()) {
+            JsonArray searchAfter = new JsonArray();
+            searchAfter.add(getScore(after));
+            searchAfter.add(after.getId());
+            rows = session.search(scope).extension(ElasticsearchExtension.get())
+                    .select(hit)
+                    .where(predicate)
+                    .sort(sort)
+                    .requestTransformer(context -> context.body().add("search_after", searchAfter))
+                    .fetchHits(limit);
+        } else {
+            rows = session.search(scope)
+                    .select(hit)
+                    .where(predicate)
+                    .sort(sort)
+                    .fetchHits(Math.toIntExact(offset), limit);
+        }
+
+        List<ShopSearchHit> hits = new ArrayList<>(rows.size());
+        for (List<?> row : rows) {
+            hits.add(new ShopSearchHit((Shop) row.get(0), (Float) row.get(1), offset + hits.size()));
+        }
+        return hits;
+    }
+
+    private SearchPredicate getPredicate(SearchPredicateFactory f, Optional<String> text, ShopFilter filter) {
+        BooleanPredicateClausesStep<?> predicate = f.bool();
+        if (text.isPresent()) {
+            predicate.must(f.match().field("name").matching(text.get()));
+        } else {
+            predicate.must(f.matchAll());
+        }
+        filter.getInVacations().ifPresent(
+                inVacations -> predicate.filter(f.match().field("inVacations").matching(inVacations))
+        );
+        filter.getCreatedAfter().ifPresent(
+                date -> predicate.filter(f.range().field("createdAt").greaterThan(date))
+        );
+        filter.getCreatedBefore().ifPresent(
+                date -> predicate.filter(f.range().field("createdAt").lessThan(date))
+        );
+        return predicate.toPredicate();
+    }
+
+    private long getRank(Cursor cursor) throws Exception {
+        try {
+            return Long.parseLong(cursor.getKey().split(KEY_SEPARATOR)[1]);
+        } catch (RuntimeException e) {
+            throw new Exception("Invalid cursor " + cursor.encode());
+        }
+    }
+
+    private float getScore(Cursor cursor) throws Exception {
+        try {
+            return Float.parseFloat(cursor.getKey().split(KEY_SEPARATOR)[0]);
+        } catch (RuntimeException e) {
+            throw new Exception("Invalid cursor " + cursor.encode());
+        }
+    }
+
+    private boolean isElasticsearch() {
+        return Search.mapping(em.getEntityManagerFactory()).backend() instanceof ElasticsearchBackend;
+    }
+}
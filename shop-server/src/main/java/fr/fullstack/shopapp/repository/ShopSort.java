@@ -0,0 +1,88 @@
+package fr.fullstack.shopapp.repository;
+
+import fr.fullstack.shopapp.model.Shop;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Sorts supported by the shop listing. Ties are broken by id, in the same direction.
+ */
+public enum ShopSort {
+    ID("id", Sort.Direction.ASC),
+    NAME("name", Sort.Direction.ASC),
+    CREATED_AT("createdAt", Sort.Direction.ASC),
+    NB_PRODUCTS("nbProducts", Sort.Direction.DESC),
+    NB_CATEGORIES("nbCategories", Sort.Direction.DESC),
+    MIN_PRICE("minPrice", Sort.Direction.ASC),
+    AVG_PRICE("avgPrice", Sort.Direction.ASC),
+    MAX_PRICE("maxPrice", Sort.Direction.ASC);
+
+    private final Sort.Direction direction;
+
+    private final String property;
+
+    ShopSort(String property, Sort.Direction direction) {
+        this.property = property;
+        this.direction = direction;
+    }
+
+    public static ShopSort fromParameter(Optional<String> sortBy) throws Exception {
+        if (!sortBy.isPresent()) {
+            return ID;
+        }
+
+        for (ShopSort sort : values()) {
+            if (sort.property.equals(sortBy.get())) {
+                return sort;
+            }
+        }
+        throw new Exception("sortBy must be id, name, createdAt, nbProducts, nbCategories, minPrice, avgPrice or "
+                            + "maxPrice");
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public String getKey(Shop shop) {
+        switch (this) {
+            case NAME:
+                return shop.getName();
+            case CREATED_AT:
+                return shop.getCreatedAt().toString();
+            case NB_PRODUCTS:
+                return String.valueOf(shop.getNbProducts());
+            case NB_CATEGORIES:
+                return String.valueOf(shop.getNbCategories());
+            case MIN_PRICE:
+                return String.valueOf(shop.getMinPrice());
+            case AVG_PRICE:
+                return String.valueOf(shop.getAvgPrice());
+            case MAX_PRICE:
+                return String.valueOf(shop.getMaxPrice());
+            default:
+                return String.valueOf(shop.getId());
+        }
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Comparable<?> parseKey(String key) {
+        switch (this) {
+            case NAME:
+                return key;
+            case CREATED_AT:
+                return LocalDate.parse(key);
+            case MIN_PRICE:
+            case AVG_PRICE:
+            case MAX_PRICE:
+                return Double.parseDouble(key);
+            default:
+                return Long.parseLong(key);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package fr.fullstack.shopapp.repository;
+
+import java.util.List;
+
+/**
+ * Statistics of the products of a shop, as maintained by ShopCounterService. The prices are 0 without products, the
+ * categories without products of the shop are left out.
+ */
+public class ShopStatistics {
+    private final double avgPrice;
+
+    private final List<ShopCategoryCount> categories;
+
+    private final double maxPrice;
+
+    private final double minPrice;
+
+    private final long nbCategories;
+
+    private final long nbProducts;
+
+    private final long shopId;
+
+    public ShopStatistics(long shopId, long nbProducts, long nbCategories, double minPrice, double avgPrice,
+                          double maxPrice, List<ShopCategoryCount> categories) {
+        this.shopId = shopId;
+        this.nbProducts = nbProducts;
+        this.nbCategories = nbCategories;
+        this.minPrice = minPrice;
+        this.avgPrice = avgPrice;
+        this.maxPrice = maxPrice;
+        this.categories = categories;
+    }
+
+    public double getAvgPrice() {
+        return avgPrice;
+    }
+
+    public List<ShopCategoryCount> getCategories() {
+        return categories;
+    }
+
+    public double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public double getMinPrice() {
+        return minPrice;
+    }
+
+    public long getNbCategories() {
+        return nbCategories;
+    }
+
+    public long getNbProducts() {
+        return nbProducts;
+    }
+
+    public long getShopId() {
+        return shopId;
+    }
+}
@@ -0,0 +1,56 @@
+package fr.fullstack.shopapp.repository;
+
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads the statistics of a shop from its counters and the ones of its categories, with one query and without
+ * aggregating its products.
+ */
+@Repository
+public class ShopStatisticsRepository {
+    @PersistenceContext
+    private EntityManager em;
+
+    public Optional<ShopStatistics> findByShopId(long shopId) {
+        List<?> rows = em.createNativeQuery(
+                        "SELECT s.nb_products, s.nb_categories, s.min_price, s.avg_price, s.max_price, "
+                                + "sc.category_id, sc.nb_products AS category_nb_products "
+                                + "FROM shops s "
+                                + "LEFT JOIN shop_categories sc ON sc.shop_id = s.id AND sc.nb_products > 0 "
+                                + "WHERE s.id = ?1 "
+                                + "ORDER BY sc.nb_products DESC, sc.category_id")
+                .setParameter(1, shopId)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<ShopCategoryCount> categories = new ArrayList<>();
+        for (Object row : rows) {
+            Object[] columns = (Object[]) row;
+            // No category row for a shop without categorized products
+            if (columns[5] != null) {
+                categories.add(new ShopCategoryCount(
+                        ((Number) columns[5]).longValue(), ((Number) columns[6]).longValue()
+                ));
+            }
+        }
+
+        Object[] shop = (Object[]) rows.get(0);
+        return Optional.of(new ShopStatistics(
+                shopId,
+                ((Number) shop[0]).longValue(),
+                ((Number) shop[1]).longValue(),
+                ((Number) shop[2]).doubleValue(),
+                ((Number) shop[3]).doubleValue(),
+                ((Number) shop[4]).doubleValue(),
+                categories
+        ));
+    }
+}
@@ -0,0 +1,31 @@
+package fr.fullstack.shopapp.repository;
+
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class TableStatisticsRepository {
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Number of rows of a table, as estimated by the PostgreSQL planner statistics. Empty when the table has not
+     * been analyzed yet.
+     */
+    public Optional<Long> estimateRowCount(String table) {
+        List<?> estimates = em.createNativeQuery(
+                        "SELECT CAST(reltuples AS bigint) FROM pg_class WHERE oid = to_regclass(?1)")
+                .setParameter(1, table)
+                .getResultList();
+        if (estimates.isEmpty()) {
+            return Optional.empty();
+        }
+
+        long estimate = ((Number) estimates.get(0)).longValue();
+        return estimate < 0 ? Optional.empty() : Optional.of(estimate);
+    }
+}
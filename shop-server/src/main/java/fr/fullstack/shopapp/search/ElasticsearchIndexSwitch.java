@@ -0,0 +1,173 @@
+package fr.fullstack.shopapp.search;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.hibernate.search.backend.elasticsearch.ElasticsearchBackend;
+import org.hibernate.search.backend.elasticsearch.ElasticsearchExtension;
+import org.hibernate.search.backend.elasticsearch.schema.management.ElasticsearchIndexSchemaExport;
+import org.hibernate.search.mapper.orm.mapping.SearchMapping;
+import org.hibernate.search.mapper.orm.scope.SearchScope;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rebuilds Elasticsearch indexes next to the ones being searched. The indexes follow the layout of Hibernate Search:
+ * idx_shops-000001 has the aliases idx_shops-write and idx_shops-read, its successor is idx_shops-000002. The write
+ * alias is moved to the successor before the rebuild, the read alias after it, in one atomic request for all the
+ * indexes.
+ */
+public class ElasticsearchIndexSwitch {
+    private static final String READ_ALIAS = "-read";
+
+    private static final String WRITE_ALIAS = "-write";
+
+    private final RestClient client;
+
+    private final List<Generation> generations;
+
+    private ElasticsearchIndexSwitch(RestClient client, List<Generation> generations) {
+        this.client = client;
+        this.generations = generations;
+    }
+
+    /**
+     * Creates the successors of the indexes of the scope with the current mapping, and moves the write aliases to
+     * them.
+     */
+    public static ElasticsearchIndexSwitch prepare(SearchMapping mapping, SearchScope<?> scope) throws IOException {
+        RestClient client = mapping.backend().unwrap(ElasticsearchBackend.class).client(RestClient.class);
+        Map<String, ElasticsearchIndexSchemaExport> schemas = new LinkedHashMap<>();
+        scope.schemaManager().exportExpectedSchema((backendName, indexName, export) ->
+                schemas.put(indexName, export.extension(ElasticsearchExtension.get()))
+        );
+
+        List<Generation> generations = new ArrayList<>();
+        ElasticsearchIndexSwitch indexSwitch = new ElasticsearchIndexSwitch(client, generations);
+        try {
+            for (Map.Entry<String, ElasticsearchIndexSchemaExport> schema : schemas.entrySet()) {
+                String current = indexSwitch.findIndex(schema.getKey() + WRITE_ALIAS);
+                String next = getSuccessor(schema.getKey(), current);
+                Generation generation = new Generation(schema.getKey(), current, next);
+                indexSwitch.createIndex(generation.next, schema.getValue());
+                generations.add(generation);
+            }
+            indexSwitch.moveAliases(WRITE_ALIAS, true);
+        } catch (IOException | RuntimeException e) {
+            indexSwitch.deleteIndexes(false);
+            throw e;
+        }
+        return indexSwitch;
+    }
+
+    /**
+     * The searches read the rebuilt indexes.
+     */
+    public void commit() throws IOException {
+        moveAliases(READ_ALIAS, true);
+    }
+
+    public void deletePreviousIndexes() throws IOException {
+        deleteIndexes(true);
+    }
+
+    /**
+     * The writes go back to the previous indexes, the rebuilt ones are deleted.
+     */
+    public void rollback() throws IOException {
+        moveAliases(WRITE_ALIAS, false);
+        deleteIndexes(false);
+    }
+
+    private void createIndex(String name, ElasticsearchIndexSchemaExport schema) throws IOException {
+        JsonObject body = schema.bodyParts().get(0).deepCopy();
+        // The aliases are moved once the index is ready
+        body.remove("aliases");
+        Request request = new Request("PUT", "/" + name);
+        schema.parameters().forEach(request::addParameter);
+        request.setJsonEntity(body.toString());
+        client.performRequest(request);
+    }
+
+    private void deleteIndexes(boolean previous) throws IOException {
+        for (Generation generation : generations) {
+            String name = previous ? generation.current : generation.next;
+            if (name != null) {
+                client.performRequest(new Request("DELETE", "/" + name));
+            }
+        }
+    }
+
+    private String findIndex(String alias) throws IOException {
+        try {
+            Request request = new Request("GET", "/_alias/" + alias);
+            String body = EntityUtils.toString(client.performRequest(request).getEntity());
+            return JsonParser.parseString(body).getAsJsonObject().keySet().iterator().next();
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private static JsonObject getAliasAction(String type, String index, String alias) {
+        JsonObject target = new JsonObject();
+        target.addProperty("index", index);
+        target.addProperty("alias", alias);
+        JsonObject action = new JsonObject();
+        action.add(type, target);
+        return action;
+    }
+
+    private static String getSuccessor(String indexName, String current) {
+        long number = current == null ? 0 : Long.parseLong(current.substring(current.lastIndexOf('-') + 1));
+        return String.format("%s-%06d", indexName, number + 1);
+    }
+
+    private void moveAliases(String suffix, boolean forward) throws IOException {
+        JsonArray actions = new JsonArray();
+        for (Generation generation : generations) {
+            String from = forward ? generation.current : generation.next;
+            String to = forward ? generation.next : generation.current;
+            String alias = generation.name + suffix;
+            if (from != null) {
+                actions.add(getAliasAction("remove", from, alias));
+            }
+            if (to != null) {
+                JsonObject add = getAliasAction("add", to, alias);
+                if (suffix.equals(WRITE_ALIAS)) {
+                    add.getAsJsonObject("add").addProperty("is_write_index", true);
+                }
+                actions.add(add);
+            }
+        }
+        JsonObject body = new JsonObject();
+        body.add("actions", actions);
+        Request request = new Request("POST", "/_aliases");
+        request.setJsonEntity(body.toString());
+        client.performRequest(request);
+    }
+
+    private static class Generation {
+        private final String current;
+
+        private final String name;
+
+        private final String next;
+
+        private Generation(String name, String current, String next) {
+            this.name = name;
+            this.current = current;
+            this.next = next;
+        }
+    }
+}
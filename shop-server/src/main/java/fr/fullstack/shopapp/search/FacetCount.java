@@ -0,0 +1,33 @@
+package fr.fullstack.shopapp.search;
+
+/**
+ * Number of hits of a search sharing a value, such as a category or a shop.
+ */
+public class FacetCount {
+    private final long count;
+
+    private final long id;
+
+    private String name;
+
+    public FacetCount(long id, long count) {
+        this.id = id;
+        this.count = count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
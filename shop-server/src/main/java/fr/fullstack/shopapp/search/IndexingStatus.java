@@ -0,0 +1,30 @@
+package fr.fullstack.shopapp.search;
+
+/**
+ * State of the indexing outbox. The lag is the age of the oldest change not indexed yet, 0 when all are indexed.
+ */
+public class IndexingStatus {
+    private final long failingEvents;
+
+    private final long lagMillis;
+
+    private final long pendingEvents;
+
+    public IndexingStatus(long pendingEvents, long failingEvents, long lagMillis) {
+        this.pendingEvents = pendingEvents;
+        this.failingEvents = failingEvents;
+        this.lagMillis = lagMillis;
+    }
+
+    public long getFailingEvents() {
+        return failingEvents;
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public long getPendingEvents() {
+        return pendingEvents;
+    }
+}
@@ -0,0 +1,89 @@
+package fr.fullstack.shopapp.search;
+
+import fr.fullstack.shopapp.model.Locale;
+import fr.fullstack.shopapp.model.LocalizedProduct;
+import org.hibernate.search.engine.backend.document.DocumentElement;
+import org.hibernate.search.engine.backend.document.IndexFieldReference;
+import org.hibernate.search.engine.backend.document.model.dsl.IndexSchemaElement;
+import org.hibernate.search.engine.backend.types.dsl.IndexFieldTypeFactory;
+import org.hibernate.search.mapper.pojo.bridge.PropertyBridge;
+import org.hibernate.search.mapper.pojo.bridge.binding.PropertyBindingContext;
+import org.hibernate.search.mapper.pojo.bridge.mapping.programmatic.PropertyBinder;
+import org.hibernate.search.mapper.pojo.bridge.runtime.PropertyBridgeWriteContext;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes the localized products of a product in one name and one description field per locale (name_fr,
+ * description_en...), each one analyzed with the analyzer of its language.
+ */
+public class LocalizedTextBinder implements PropertyBinder {
+    public static String getDescriptionField(Locale locale) {
+        return "description_" + locale.name().toLowerCase(java.util.Locale.ROOT);
+    }
+
+    public static String getNameField(Locale locale) {
+        return "name_" + locale.name().toLowerCase(java.util.Locale.ROOT);
+    }
+
+    @Override
+    public void bind(PropertyBindingContext context) {
+        context.dependencies().use("locale").use("name").use("description");
+
+        IndexSchemaElement schema = context.indexSchemaElement();
+        IndexFieldTypeFactory types = context.typeFactory();
+        Map<Locale, IndexFieldReference<String>> names = new EnumMap<>(Locale.class);
+        Map<Locale, IndexFieldReference<String>> descriptions = new EnumMap<>(Locale.class);
+        for (Locale locale : Locale.values()) {
+            String analyzer = getAnalyzer(locale);
+            names.put(locale, schema.field(getNameField(locale), types.asString().analyzer(analyzer))
+                    .multiValued()
+                    .toReference());
+            descriptions.put(locale, schema.field(getDescriptionField(locale), types.asString().analyzer(analyzer))
+                    .multiValued()
+                    .toReference());
+        }
+        context.bridge(List.class, new Bridge(names, descriptions));
+    }
+
+    // Built in Elasticsearch, defined by LuceneAnalysisConfig for the embedded backend
+    private static String getAnalyzer(Locale locale) {
+        switch (locale) {
+            case FR:
+                return "french";
+            case EN:
+                return "english";
+            default:
+                return "default";
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static class Bridge implements PropertyBridge<List> {
+        private final Map<Locale, IndexFieldReference<String>> descriptions;
+
+        private final Map<Locale, IndexFieldReference<String>> names;
+
+        private Bridge(
+                Map<Locale, IndexFieldReference<String>> names,
+                Map<Locale, IndexFieldReference<String>> descriptions
+        ) {
+            this.names = names;
+            this.descriptions = descriptions;
+        }
+
+        @Override
+        public void write(DocumentElement target, List bridgedElement, PropertyBridgeWriteContext context) {
+            for (Object element : bridgedElement) {
+                LocalizedProduct localizedProduct = (LocalizedProduct) element;
+                Locale locale = Locale.valueOf(localizedProduct.getLocale());
+                target.addValue(names.get(locale), localizedProduct.getName());
+                if (localizedProduct.getDescription() != null) {
+                    target.addValue(descriptions.get(locale), localizedProduct.getDescription());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package fr.fullstack.shopapp.search;
+
+import org.apache.lucene.analysis.core.LowerCaseFilterFactory;
+import org.apache.lucene.analysis.en.EnglishPossessiveFilterFactory;
+import org.apache.lucene.analysis.en.PorterStemFilterFactory;
+import org.apache.lucene.analysis.fr.FrenchLightStemFilterFactory;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilterFactory;
+import org.apache.lucene.analysis.standard.StandardTokenizerFactory;
+import org.apache.lucene.analysis.util.ElisionFilterFactory;
+import org.hibernate.search.backend.lucene.analysis.LuceneAnalysisConfigurationContext;
+import org.hibernate.search.backend.lucene.analysis.LuceneAnalysisConfigurer;
+
+/**
+ * Analyzers of the embedded Lucene backend, named after their Elasticsearch built-in counterparts.
+ */
+public class LuceneAnalysisConfig implements LuceneAnalysisConfigurer {
+    @Override
+    public void configure(LuceneAnalysisConfigurationContext context) {
+        context.analyzer("english").custom()
+                .tokenizer(StandardTokenizerFactory.class)
+                .tokenFilter(EnglishPossessiveFilterFactory.class)
+                .tokenFilter(LowerCaseFilterFactory.class)
+                .tokenFilter(PorterStemFilterFactory.class);
+
+        // l'huile, d'olive...
+        context.analyzer("french").custom()
+                .tokenizer(StandardTokenizerFactory.class)
+                .tokenFilter(ElisionFilterFactory.class)
+                .tokenFilter(LowerCaseFilterFactory.class)
+                .tokenFilter(ASCIIFoldingFilterFactory.class)
+                .tokenFilter(FrenchLightStemFilterFactory.class);
+    }
+}
@@ -0,0 +1,33 @@
+package fr.fullstack.shopapp.search;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Number of hits of a search with a price in [from, to). A missing bound is unbounded.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PriceRangeCount {
+    private final long count;
+
+    private final Float from;
+
+    private final Float to;
+
+    public PriceRangeCount(Float from, Float to, long count) {
+        this.from = from;
+        this.to = to;
+        this.count = count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Float getFrom() {
+        return from;
+    }
+
+    public Float getTo() {
+        return to;
+    }
+}
@@ -0,0 +1,70 @@
+package fr.fullstack.shopapp.search;
+
+import fr.fullstack.shopapp.model.Product;
+
+import java.util.List;
+
+/**
+ * A page of products ranked by relevance, with the facet counts of all the hits of the search.
+ */
+public class ProductSearchPage {
+    private final List<FacetCount> categories;
+
+    private final List<Product> content;
+
+    private final int number;
+
+    private final List<PriceRangeCount> prices;
+
+    private final List<FacetCount> shops;
+
+    private final int size;
+
+    private final long totalElements;
+
+    public ProductSearchPage(
+            List<Product> content,
+            int number,
+            int size,
+            long totalElements,
+            List<FacetCount> categories,
+            List<FacetCount> shops,
+            List<PriceRangeCount> prices
+    ) {
+        this.content = content;
+        this.number = number;
+        this.size = size;
+        this.totalElements = totalElements;
+        this.categories = categories;
+        this.shops = shops;
+        this.prices = prices;
+    }
+
+    public List<FacetCount> getCategories() {
+        return categories;
+    }
+
+    public List<Product> getContent() {
+        return content;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public List<PriceRangeCount> getPrices() {
+        return prices;
+    }
+
+    public List<FacetCount> getShops() {
+        return shops;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getTotalElements() {
+        return totalElements;
+    }
+}
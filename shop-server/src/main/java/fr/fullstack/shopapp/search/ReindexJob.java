@@ -0,0 +1,112 @@
+package fr.fullstack.shopapp.search;
+
+import fr.fullstack.shopapp.model.IndexedEntity;
+import fr.fullstack.shopapp.util.RateLimiter;
+import org.hibernate.search.mapper.pojo.massindexing.MassIndexingMonitor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * A reindexing, followed through the monitor of its MassIndexer. The loading threads report each batch of loaded
+ * entities: they wait there while the reindexing goes faster than its maximum rate.
+ */
+public class ReindexJob implements MassIndexingMonitor {
+    private final List<IndexedEntity> entities;
+
+    private volatile String error;
+
+    private volatile Instant finishedAt;
+
+    private final AtomicLong indexedCount = new AtomicLong();
+
+    private final Optional<RateLimiter> rateLimiter;
+
+    private final Instant startedAt = Instant.now();
+
+    private volatile State state = State.RUNNING;
+
+    private final AtomicLong totalCount = new AtomicLong();
+
+    public ReindexJob(List<IndexedEntity> entities, Optional<Integer> maxEntitiesPerSecond) {
+        this.entities = entities;
+        this.rateLimiter = maxEntitiesPerSecond.map(RateLimiter::new);
+    }
+
+    @Override
+    public void addToTotalCount(long increment) {
+        totalCount.addAndGet(increment);
+    }
+
+    @Override
+    public void documentsAdded(long increment) {
+        indexedCount.addAndGet(increment);
+    }
+
+    @Override
+    public void documentsBuilt(long increment) {
+    }
+
+    @Override
+    public void entitiesLoaded(long increment) {
+        if (rateLimiter.isPresent()) {
+            try {
+                rateLimiter.get().acquire(increment);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public void failed(Throwable failure) {
+        error = failure.getMessage();
+        finish(State.FAILED);
+    }
+
+    public ReindexStatus getStatus() {
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        long indexed = indexedCount.get();
+        long total = totalCount.get();
+        double elapsedSeconds = Duration.between(startedAt, end).toMillis() / 1000.0;
+        double entitiesPerSecond = elapsedSeconds > 0 ? indexed / elapsedSeconds : 0;
+        Long etaSeconds = isRunning() && entitiesPerSecond > 0
+                ? Math.round(Math.max(0, total - indexed) / entitiesPerSecond)
+                : null;
+        return new ReindexStatus(
+                state.name(),
+                entities.stream().map(IndexedEntity::name).collect(Collectors.toList()),
+                startedAt,
+                finishedAt,
+                total,
+                indexed,
+                Math.round(entitiesPerSecond * 10) / 10.0,
+                etaSeconds,
+                error
+        );
+    }
+
+    @Override
+    public void indexingCompleted() {
+    }
+
+    public boolean isRunning() {
+        return state == State.RUNNING;
+    }
+
+    public void succeeded() {
+        finish(State.SUCCEEDED);
+    }
+
+    private void finish(State finalState) {
+        finishedAt = Instant.now();
+        state = finalState;
+    }
+
+    private enum State {
+        RUNNING, SUCCEEDED, FAILED
+    }
+}
@@ -0,0 +1,88 @@
+package fr.fullstack.shopapp.search;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Progress of a reindexing. The estimated remaining time is only known while it runs.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReindexStatus {
+    private final List<String> entities;
+
+    private final double entitiesPerSecond;
+
+    private final String error;
+
+    private final Long etaSeconds;
+
+    private final Instant finishedAt;
+
+    private final long indexedCount;
+
+    private final Instant startedAt;
+
+    private final String state;
+
+    private final long totalCount;
+
+    public ReindexStatus(
+            String state,
+            List<String> entities,
+            Instant startedAt,
+            Instant finishedAt,
+            long totalCount,
+            long indexedCount,
+            double entitiesPerSecond,
+            Long etaSeconds,
+            String error
+    ) {
+        this.state = state;
+        this.entities = entities;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.totalCount = totalCount;
+        this.indexedCount = indexedCount;
+        this.entitiesPerSecond = entitiesPerSecond;
+        this.etaSeconds = etaSeconds;
+        this.error = error;
+    }
+
+    public List<String> getEntities() {
+        return entities;
+    }
+
+    public double getEntitiesPerSecond() {
+        return entitiesPerSecond;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getIndexedCount() {
+        return indexedCount;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+}
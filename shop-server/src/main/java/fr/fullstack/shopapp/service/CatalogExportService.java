@@ -0,0 +1,100 @@
+package fr.fullstack.shopapp.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import fr.fullstack.shopapp.model.Product;
+import fr.fullstack.shopapp.model.Shop;
+import fr.fullstack.shopapp.repository.ProductRepository;
+import fr.fullstack.shopapp.repository.ShopRepository;
+import fr.fullstack.shopapp.util.LazyLoading;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Exports the catalog as NDJSON, one entity per line, in the order of the ids. The entities are read from a
+ * forward-only cursor and written by chunks: the lazy associations of a chunk are batch fetched, then the session is
+ * cleared, so the memory used does not depend on the size of the catalog.
+ */
+@Service
+public class CatalogExportService {
+    // Same as the fetch size of the export queries
+    private static final int CHUNK_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ShopRepository shopRepository;
+
+    @Transactional(readOnly = true)
+    public long exportProducts(OutputStream output) throws IOException {
+        try (Stream<Product> products = productRepository.streamAllByOrderByIdAsc()) {
+            return export(products, LazyLoading::initializeProducts, output);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exportShops(OutputStream output) throws IOException {
+        try (Stream<Shop> shops = shopRepository.streamAllByOrderByIdAsc()) {
+            return export(shops, LazyLoading::initializeShops, output);
+        }
+    }
+
+    private <T> long export(Stream<T> entities, Consumer<List<T>> initialize, OutputStream output)
+            throws IOException {
+        // The output is flushed once per chunk, not after each line
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // Each line ends with a new line, no separator is written before the next one
+        generator.setRootValueSeparator(null);
+
+        long nbExported = 0;
+        List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+        Iterator<T> iterator = entities.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == CHUNK_SIZE) {
+                nbExported += writeChunk(chunk, initialize, writer, generator);
+            }
+        }
+        nbExported += writeChunk(chunk, initialize, writer, generator);
+        generator.close();
+        return nbExported;
+    }
+
+    private <T> int writeChunk(List<T> chunk, Consumer<List<T>> initialize, ObjectWriter writer,
+                               JsonGenerator generator) throws IOException {
+        initialize.accept(chunk);
+        for (T entity : chunk) {
+            writer.writeValue(generator, entity);
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+
+        // The written entities are not read again, the session must not grow with the catalog
+        int nbWritten = chunk.size();
+        chunk.clear();
+        em.clear();
+        return nbWritten;
+    }
+}
@@ -0,0 +1,275 @@
+package fr.fullstack.shopapp.service;
+
+import fr.fullstack.shopapp.datasource.ReadYourWrites;
+import fr.fullstack.shopapp.model.Category;
+import fr.fullstack.shopapp.repository.CategoryRepository;
+import fr.fullstack.shopapp.repository.ResourceVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * In-memory snapshot of the categories with their number of products, serving the category reads without going to
+ * the database. The snapshot is never modified: once a transaction publishing a CategoryCatalogChangedEvent is
+ * committed, the committing thread swaps in a new one, so that the change can be read right after. A change of the
+ * categories reloads them all. A change of the numbers of products only, by the writes of the products, reads the
+ * counters of the changed categories by their ids and copies the other ones from the current snapshot. The validators
+ * of the category responses are computed from the snapshot content: the number of products changes without touching
+ * the categories.
+ */
+@Service
+public class CategoryCatalog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CategoryCatalog.class);
+
+    private static final long RETRY_DELAY = 5000;
+
+    private long builtVersion = -1;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private final ScheduledExecutorService reloadExecutor = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "category-catalog-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean reloadScheduled = new AtomicBoolean();
+
+    private final AtomicLong requestedVersion = new AtomicLong();
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * @param sort the orders of the listing, on the properties of the categories, the order of the ids when unsorted
+     */
+    public List<Category> getCategories(Sort sort) {
+        List<Category> categories = getSnapshot().categories;
+        if (sort.isUnsorted()) {
+            return categories;
+        }
+
+        Comparator<Category> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Category> orderComparator = getComparator(order);
+            comparator = comparator == null ? orderComparator : comparator.thenComparing(orderComparator);
+        }
+        List<Category> sorted = new ArrayList<>(categories);
+        sorted.sort(comparator);
+        return Collections.unmodifiableList(sorted);
+    }
+
+    public ResourceVersion getCategoriesVersion() {
+        return getSnapshot().version;
+    }
+
+    public Optional<Category> getCategory(long id) {
+        return Optional.ofNullable(getSnapshot().categoriesById.get(id));
+    }
+
+    public Optional<ResourceVersion> getCategoryVersion(long id) {
+        return Optional.ofNullable(getSnapshot().versionsById.get(id));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CategoryCatalogChangedEvent event) {
+        long version = requestedVersion.incrementAndGet();
+        // The write is already committed, a failure of the reload must not be reported as its own
+        try {
+            if (event.isNbProductsOnly()) {
+                refreshNbProducts(event.getCategoryIds());
+            } else {
+                rebuild(version);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Categories not reloaded, retried in {} ms", RETRY_DELAY, e);
+            scheduleReload(RETRY_DELAY);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reloadExecutor.shutdownNow();
+    }
+
+    // Detached copies, the entities of the loading session are not shared between requests
+    private static Category copy(Category category, long nbProducts) {
+        Category copy = new Category();
+        copy.setId(category.getId());
+        copy.setName(category.getName());
+        copy.setNbProducts(nbProducts);
+        copy.setProducts(Collections.emptyList());
+        return copy;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private Comparator<Category> getComparator(Sort.Order order) {
+        // Fails on the properties that the categories do not have, like the sorts of the repositories
+        Class<?> type = PropertyPath.from(order.getProperty(), Category.class).getType();
+        if (!Comparable.class.isAssignableFrom(ClassUtils.resolvePrimitiveIfNecessary(type))) {
+            throw new IllegalArgumentException("Categories cannot be sorted by " + order.getProperty());
+        }
+
+        Comparator<Comparable> values = order.isIgnoreCase() && type == String.class
+                ? (Comparator) String.CASE_INSENSITIVE_ORDER
+                : Comparator.naturalOrder();
+        Comparator<Category> comparator = Comparator.comparing(
+                category -> (Comparable) new BeanWrapperImpl(category).getPropertyValue(order.getProperty()),
+                order.getNullHandling() == Sort.NullHandling.NULLS_LAST
+                        ? Comparator.nullsLast(values)
+                        : Comparator.nullsFirst(values)
+        );
+        return order.isDescending() ? comparator.reversed() : comparator;
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            rebuild(requestedVersion.get());
+            current = snapshot.get();
+        }
+        return current;
+    }
+
+    private <T> T inReadTransaction(Supplier<T> read) {
+        // The listener runs after the commit, while the finished transaction is still bound to the thread
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaction.setReadOnly(true);
+        // Read after the commit of a change, which a replica may not have yet
+        return ReadYourWrites.onPrimary(() -> transaction.execute(status -> read.get()));
+    }
+
+    private Snapshot load() {
+        return inReadTransaction(() -> {
+            List<Category> categories = new ArrayList<>();
+            for (Category entity : categoryRepository.findAllByOrderByIdAsc()) {
+                categories.add(copy(entity, entity.getStoredNbProducts()));
+            }
+            return new Snapshot(categories, snapshot.get());
+        });
+    }
+
+    private synchronized void rebuild(long version) {
+        // A reload started after this version was requested already contains its changes
+        if (builtVersion >= version) {
+            return;
+        }
+        long loadedVersion = requestedVersion.get();
+        snapshot.set(load());
+        builtVersion = loadedVersion;
+    }
+
+    private synchronized void refreshNbProducts(Set<Long> categoryIds) {
+        Snapshot current = snapshot.get();
+        // Not loaded yet, the first read loads the counters
+        if (current == null || categoryIds.isEmpty()) {
+            return;
+        }
+
+        // Read under the lock, after the commit: a snapshot swapped in later has counters at least as recent
+        Map<Long, Long> nbProducts = new HashMap<>();
+        inReadTransaction(() -> {
+            for (Object[] row : categoryRepository.findNbProducts(categoryIds)) {
+                nbProducts.put((Long) row[0], (Long) row[1]);
+            }
+            return null;
+        });
+        List<Category> categories = new ArrayList<>(current.categories.size());
+        for (Category category : current.categories) {
+            Long categoryNbProducts = nbProducts.get(category.getId());
+            categories.add(categoryNbProducts == null || categoryNbProducts.equals(category.getNbProducts())
+                                   ? category
+                                   : copy(category, categoryNbProducts));
+        }
+        snapshot.set(new Snapshot(categories, current));
+    }
+
+    private void reloadInBackground() {
+        // Cleared before the reload: a change committed while it is loading schedules the next one
+        reloadScheduled.set(false);
+        try {
+            rebuild(requestedVersion.get());
+        } catch (RuntimeException e) {
+            LOGGER.error("Categories not reloaded, retried in {} ms", RETRY_DELAY, e);
+            scheduleReload(RETRY_DELAY);
+        }
+    }
+
+    private void scheduleReload(long delay) {
+        if (reloadScheduled.compareAndSet(false, true)) {
+            reloadExecutor.schedule(this::reloadInBackground, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static class Snapshot {
+        private final List<Category> categories;
+
+        private final Map<Long, Category> categoriesById;
+
+        private final ResourceVersion version;
+
+        private final Map<Long, ResourceVersion> versionsById;
+
+        private Snapshot(List<Category> categories, Snapshot previous) {
+            Instant loadedAt = Instant.now();
+            Map<Long, Category> categoriesById = new LinkedHashMap<>();
+            Map<Long, ResourceVersion> versionsById = new HashMap<>();
+            StringBuilder content = new StringBuilder();
+            for (Category category : categories) {
+                categoriesById.put(category.getId(), category);
+
+                String categoryContent = category.getId() + "\n" + category.getName() + "\n" + category.getNbProducts();
+                String eTag = "category-" + digest(categoryContent);
+                // The previous date is kept as long as the category is unchanged
+                ResourceVersion previousVersion = previous == null ? null : previous.versionsById.get(category.getId());
+                Instant lastModified = previousVersion != null && previousVersion.getETag().equals(eTag)
+                        ? previousVersion.getLastModified().get()
+                        : loadedAt;
+                versionsById.put(category.getId(), new ResourceVersion(eTag, Optional.of(lastModified)));
+                content.append(categoryContent).append('\n');
+            }
+            this.categories = Collections.unmodifiableList(categories);
+            this.categoriesById = Collections.unmodifiableMap(categoriesById);
+            this.version = new ResourceVersion("categories-" + digest(content.toString()), Optional.empty());
+            this.versionsById = Collections.unmodifiableMap(versionsById);
+        }
+
+        private static String digest(String content) {
+            return DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package fr.fullstack.shopapp.service;
+
+import java.util.Set;
+
+/**
+ * Published when the categories or the numbers of products of some categories have changed, see CategoryCatalog.
+ */
+public class CategoryCatalogChangedEvent {
+    // Categories of which only the number of products has changed, as by the writes of the products, null when the
+    // categories themselves have changed
+    private final Set<Long> categoryIds;
+
+    public CategoryCatalogChangedEvent() {
+        this.categoryIds = null;
+    }
+
+    public CategoryCatalogChangedEvent(Set<Long> categoryIds) {
+        this.categoryIds = categoryIds;
+    }
+
+    public Set<Long> getCategoryIds() {
+        return categoryIds;
+    }
+
+    public boolean isNbProductsOnly() {
+        return categoryIds != null;
+    }
+}
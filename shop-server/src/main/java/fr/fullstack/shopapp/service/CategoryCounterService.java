@@ -0,0 +1,67 @@
+package fr.fullstack.shopapp.service;
+
+import fr.fullstack.shopapp.repository.CategoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maintains the number of products of the categories. The updates are run in the transaction of the caller, once
+ * the products have been flushed, and the CategoryCatalog reads the changed counters again once it is committed.
+ */
+@Service
+public class CategoryCounterService {
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
+    @Transactional
+    public void categoriesChanged(Set<Long> oldCategoryIds, Set<Long> newCategoryIds) {
+        if (oldCategoryIds.equals(newCategoryIds)) {
+            return;
+        }
+
+        Set<Long> changedIds = new HashSet<>();
+        for (Long categoryId : oldCategoryIds) {
+            if (!newCategoryIds.contains(categoryId)) {
+                categoryRepository.addToNbProducts(categoryId, -1);
+                changedIds.add(categoryId);
+            }
+        }
+        for (Long categoryId : newCategoryIds) {
+            if (!oldCategoryIds.contains(categoryId)) {
+                categoryRepository.addToNbProducts(categoryId, 1);
+                changedIds.add(categoryId);
+            }
+        }
+        eventPublisher.publishEvent(new CategoryCatalogChangedEvent(changedIds));
+    }
+
+    @Transactional
+    public void productsAdded(Map<Long, Long> nbProductsByCategory) {
+        if (nbProductsByCategory.isEmpty()) {
+            return;
+        }
+
+        nbProductsByCategory.forEach(categoryRepository::addToNbProducts);
+        eventPublisher.publishEvent(new CategoryCatalogChangedEvent(new HashSet<>(nbProductsByCategory.keySet())));
+    }
+
+    @Transactional
+    public int rebuildCounters() {
+        int nbCategories = categoryRepository.rebuildCounters();
+        eventPublisher.publishEvent(new CategoryCatalogChangedEvent());
+        tableVersionService.tablesChanged(TableVersionService.CATEGORIES);
+        return nbCategories;
+    }
+}
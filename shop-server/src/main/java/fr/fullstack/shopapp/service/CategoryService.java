@@ -1,30 +1,56 @@
 package fr.fullstack.shopapp.service;
 
 import fr.fullstack.shopapp.model.Category;
-import fr.fullstack.shopapp.model.Product;
+import fr.fullstack.shopapp.pagination.MultiGetResult;
 import fr.fullstack.shopapp.repository.CategoryRepository;
+import fr.fullstack.shopapp.repository.ProductRepository;
+import fr.fullstack.shopapp.repository.ResourceVersion;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class CategoryService {
+    @Autowired
+    private CategoryCatalog categoryCatalog;
+
+    @Autowired
+    private CategoryCounterService categoryCounterService;
+
     @Autowired
     private CategoryRepository categoryRepository;
 
-    @PersistenceContext
-    private EntityManager em;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private IndexingOutboxService indexingOutboxService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ShopCounterService shopCounterService;
+
+    @Autowired
+    private TableVersionService tableVersionService;
 
     public Category createCategory(Category category) throws Exception {
         try {
-            return categoryRepository.save(category);
+            Category newCategory = categoryRepository.save(category);
+            eventPublisher.publishEvent(new CategoryCatalogChangedEvent());
+            tableVersionService.tablesChanged(TableVersionService.CATEGORIES);
+            return newCategory;
         } catch (Exception e) {
             throw new Exception(e.getMessage());
         }
@@ -33,46 +59,89 @@ public class CategoryService {
     @Transactional
     public void deleteCategoryById(long id) throws Exception {
         try {
-            Category category = getCategory(id);
-            // delete nested relations with products
-            deleteNestedRelations(category);
+            getCategory(id);
+            // The products lose the category
+            productRepository.touchByCategory(id);
+            indexingOutboxService.productsOfCategoryChanged(id);
+            shopCounterService.categoryRemoved(id);
+            productRepository.removeCategory(id);
             categoryRepository.deleteById(id);
+            eventPublisher.publishEvent(new CategoryCatalogChangedEvent());
+            tableVersionService.tablesChanged(
+                    TableVersionService.PRODUCTS, TableVersionService.SHOPS, TableVersionService.CATEGORIES
+            );
         } catch (Exception e) {
             throw new Exception(e.getMessage());
         }
     }
 
+    public MultiGetResult<Category> getCategoriesByIds(List<Long> ids) throws Exception {
+        List<Long> distinctIds = MultiGetResult.getDistinctIds(ids);
+        List<Category> categories = new ArrayList<>(distinctIds.size());
+        for (Long id : distinctIds) {
+            categoryCatalog.getCategory(id).ifPresent(categories::add);
+        }
+        return MultiGetResult.of(distinctIds, categories, Category::getId);
+    }
+
     public Category getCategoryById(long id) throws Exception {
-        try {
-            return getCategory(id);
-        } catch (Exception e) {
-            throw new Exception(e.getMessage());
+        Optional<Category> category = categoryCatalog.getCategory(id);
+        if (!category.isPresent()) {
+            throw new Exception("Category with id " + id + " not found");
         }
+        return category.get();
+    }
+
+    public ResourceVersion getCategoryListVersion() {
+        return categoryCatalog.getCategoriesVersion();
     }
 
     public Page<Category> getCategoryList(Pageable pageable) {
-        return categoryRepository.findByOrderByIdAsc(pageable);
+        return getCatalogPage(pageable);
+    }
+
+    // The exact total of the catalog costs nothing
+    public Page<Category> getCategoryListWithEstimatedTotal(Pageable pageable) {
+        return getCatalogPage(pageable);
     }
 
+    public ResourceVersion getCategoryVersion(long id) throws Exception {
+        Optional<ResourceVersion> version = categoryCatalog.getCategoryVersion(id);
+        if (!version.isPresent()) {
+            throw new Exception("Category with id " + id + " not found");
+        }
+        return version.get();
+    }
+
+    public Slice<Category> getCategorySlice(Pageable pageable) {
+        Page<Category> categories = getCatalogPage(pageable);
+        return new SliceImpl<>(categories.getContent(), pageable, categories.hasNext());
+    }
+
+    public int rebuildCounters() {
+        return categoryCounterService.rebuildCounters();
+    }
+
+    @Transactional
     public Category updateCategory(Category category) throws Exception {
         try {
             getCategory(category.getId());
+            categoryRepository.touch(category.getId());
             return this.createCategory(category);
         } catch (Exception e) {
             throw new Exception(e.getMessage());
         }
     }
 
-    private void deleteNestedRelations(Category category) {
-        List<Product> products = category.getProducts();
-        for (int i = 0; i < products.size(); i++) {
-            Product product = products.get(i);
-            List<Category> categories = product.getCategories();
-            categories.remove(category);
-            product.setCategories(categories);
-            em.merge(product);
-            em.flush();
+    private Page<Category> getCatalogPage(Pageable pageable) {
+        // Sorted in memory as well: every listing has the representation of the catalog
+        List<Category> categories = categoryCatalog.getCategories(pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(categories);
         }
+        int from = (int) Math.min(pageable.getOffset(), categories.size());
+        int to = Math.min(from + pageable.getPageSize(), categories.size());
+        return new PageImpl<>(categories.subList(from, to), pageable, categories.size());
     }
 
     private Category getCategory(Long id) throws Exception {
@@ -0,0 +1,76 @@
+package fr.fullstack.shopapp.service;
+
+import fr.fullstack.shopapp.model.IndexedEntity;
+import fr.fullstack.shopapp.model.IndexingEvent;
+import fr.fullstack.shopapp.repository.IndexingEventRepository;
+import fr.fullstack.shopapp.search.IndexingStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The changed shops and products are recorded in the indexing_events table by the transaction that changes them,
+ * and indexed in the background by IndexingOutboxWorker: a write never waits for the search backend, and does not
+ * fail when it is unavailable.
+ */
+@Service
+public class IndexingOutboxService {
+    @Autowired
+    private IndexingEventRepository indexingEventRepository;
+
+    @Transactional(readOnly = true)
+    public IndexingStatus getStatus() {
+        Instant now = Instant.now();
+        long lagMillis = indexingEventRepository.findOldestCreatedAt()
+                .map(createdAt -> Math.max(0, Duration.between(createdAt, now).toMillis()))
+                .orElse(0L);
+        return new IndexingStatus(
+                indexingEventRepository.count(),
+                indexingEventRepository.countByAttemptsGreaterThan(0),
+                lagMillis
+        );
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void productChanged(long id) {
+        record(IndexedEntity.PRODUCT, List.of(id));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void productsChanged(Collection<Long> ids) {
+        record(IndexedEntity.PRODUCT, ids);
+    }
+
+    // To call before the products lose the category
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void productsOfCategoryChanged(long categoryId) {
+        indexingEventRepository.insertProductsOfCategory(categoryId, Instant.now());
+    }
+
+    // To call before the products lose the shop
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void productsOfShopChanged(long shopId) {
+        indexingEventRepository.insertProductsOfShop(shopId, Instant.now());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void shopChanged(long id) {
+        record(IndexedEntity.SHOP, List.of(id));
+    }
+
+    private void record(IndexedEntity entityType, Collection<Long> ids) {
+        Instant now = Instant.now();
+        List<IndexingEvent> events = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            events.add(new IndexingEvent(entityType, id, now));
+        }
+        indexingEventRepository.saveAll(events);
+    }
+}
@@ -0,0 +1,129 @@
+package fr.fullstack.shopapp.service;
+
+import fr.fullstack.shopapp.model.IndexedEntity;
+import fr.fullstack.shopapp.model.IndexingEvent;
+import fr.fullstack.shopapp.repository.IndexingEventRepository;
+import org.hibernate.Session;
+import org.hibernate.search.mapper.orm.Search;
+import org.hibernate.search.mapper.orm.work.SearchIndexingPlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Drains the indexing outbox, one batch per transaction. The events of a batch are locked, the events of the same
+ * entity are merged (it is loaded and indexed once, as it is now), then they are deleted. A batch that cannot be
+ * indexed is postponed, with a delay doubling at each attempt. The search backend never receives more than one batch
+ * at a time, whatever the rate of the writes.
+ */
+@Service
+public class IndexingOutboxWorker {
+    private static final int BATCH_SIZE = 200;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexingOutboxWorker.class);
+
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(5);
+
+    private static final long POLLING_INTERVAL = 1000;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private IndexingEventRepository indexingEventRepository;
+
+    @Autowired
+    private ReindexService reindexService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Scheduled(fixedDelay = POLLING_INTERVAL)
+    public void processEvents() {
+        // The reindexing may load an entity before its change: the changes made meanwhile are indexed after it
+        if (reindexService.isRunning()) {
+            return;
+        }
+
+        // Until the outbox is empty or a batch fails
+        int nbEvents;
+        do {
+            nbEvents = processBatch();
+        } while (nbEvents == BATCH_SIZE);
+    }
+
+    private static Duration getRetryDelay(int attempts) {
+        Duration delay = Duration.ofSeconds(1L << Math.min(attempts, 10));
+        return delay.compareTo(MAX_RETRY_DELAY) < 0 ? delay : MAX_RETRY_DELAY;
+    }
+
+    private void index(List<IndexingEvent> events) {
+        Map<IndexedEntity, Set<Long>> idsByType = new EnumMap<>(IndexedEntity.class);
+        for (IndexingEvent event : events) {
+            idsByType.computeIfAbsent(event.getEntityType(), type -> new LinkedHashSet<>()).add(event.getEntityId());
+        }
+
+        SearchIndexingPlan plan = Search.session(em).indexingPlan();
+        for (Map.Entry<IndexedEntity, Set<Long>> entry : idsByType.entrySet()) {
+            Class<?> entityClass = entry.getKey().getEntityClass();
+            List<Long> ids = new ArrayList<>(entry.getValue());
+            List<?> entities = em.unwrap(Session.class).byMultipleIds(entityClass).multiLoad(ids);
+            for (int i = 0; i < ids.size(); i++) {
+                if (entities.get(i) == null) {
+                    // Deleted since the change
+                    plan.purge(entityClass, ids.get(i), null);
+                } else {
+                    plan.addOrUpdate(entities.get(i));
+                }
+            }
+        }
+        plan.execute();
+    }
+
+    private void postpone(List<Long> eventIds) {
+        Instant now = Instant.now();
+        for (IndexingEvent event : indexingEventRepository.findAllById(eventIds)) {
+            event.setAttempts(event.getAttempts() + 1);
+            event.setProcessAfter(now.plus(getRetryDelay(event.getAttempts())));
+        }
+    }
+
+    private int processBatch() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<Long> eventIds = new ArrayList<>();
+        try {
+            return transaction.execute(status -> {
+                List<IndexingEvent> events = indexingEventRepository.findReady(
+                        Instant.now(), PageRequest.of(0, BATCH_SIZE)
+                );
+                if (events.isEmpty()) {
+                    return 0;
+                }
+                events.forEach(event -> eventIds.add(event.getId()));
+                index(events);
+                indexingEventRepository.deleteAllByIdInBatch(eventIds);
+                return events.size();
+            });
+        } catch (RuntimeException e) {
+            LOGGER.warn("Indexing of {} changes failed, retried later: {}", eventIds.size(), e.getMessage());
+            transaction.executeWithoutResult(status -> postpone(eventIds));
+            return 0;
+        }
+    }
+}
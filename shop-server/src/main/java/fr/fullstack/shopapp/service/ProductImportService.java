@@ -0,0 +1,199 @@
+package fr.fullstack.shopapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.fullstack.shopapp.bulk.ProductImportFormat;
+import fr.fullstack.shopapp.bulk.ProductImportReader;
+import fr.fullstack.shopapp.bulk.ProductImportReport;
+import fr.fullstack.shopapp.bulk.ProductImportRow;
+import fr.fullstack.shopapp.model.Category;
+import fr.fullstack.shopapp.model.LocalizedProduct;
+import fr.fullstack.shopapp.model.Product;
+import fr.fullstack.shopapp.model.Shop;
+import fr.fullstack.shopapp.repository.ShopRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.DoubleSummaryStatistics;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports products in bulk. The rows are validated one by one, then inserted by chunks, each chunk in its own
+ * transaction and sent with JDBC batches. A chunk rejected by the database is replayed row by row, so that only the
+ * faulty rows are reported.
+ */
+@Service
+public class ProductImportService {
+    private static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private CategoryCatalog categoryCatalog;
+
+    @Autowired
+    private CategoryCounterService categoryCounterService;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private IndexingOutboxService indexingOutboxService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ShopCounterService shopCounterService;
+
+    @Autowired
+    private ShopRepository shopRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
+    @Autowired
+    private Validator validator;
+
+    public ProductImportReport importProducts(
+            InputStream input,
+            ProductImportFormat format,
+            Optional<Long> shopId
+    ) throws Exception {
+        if (shopId.isPresent() && !shopRepository.existsById(shopId.get())) {
+            throw new Exception("Shop with id " + shopId.get() + " not found");
+        }
+
+        ProductImportReport report = new ProductImportReport();
+        List<ProductImportRow> chunk = new ArrayList<>();
+        try (ProductImportReader reader = new ProductImportReader(input, format, objectMapper)) {
+            for (ProductImportRow row = reader.next(); row != null; row = reader.next()) {
+                String error = row.isValid() ? validate(row.getProduct(), shopId) : row.getError();
+                if (error != null) {
+                    report.addError(row.getLine(), error);
+                    continue;
+                }
+
+                chunk.add(row);
+                if (chunk.size() == CHUNK_SIZE) {
+                    insertChunk(chunk, shopId, report);
+                    chunk.clear();
+                }
+            }
+            insertChunk(chunk, shopId, report);
+        } catch (IOException e) {
+            throw new Exception(e.getMessage());
+        }
+
+        return report;
+    }
+
+    private void insert(List<ProductImportRow> rows, Optional<Long> shopId) {
+        Shop shop = shopId.map(id -> em.getReference(Shop.class, id)).orElse(null);
+        Map<Long, Long> nbProductsByCategory = new HashMap<>();
+        DoubleSummaryStatistics prices = new DoubleSummaryStatistics();
+        List<Long> productIds = new ArrayList<>(rows.size());
+        for (ProductImportRow row : rows) {
+            Product product = newProduct(row.getProduct(), shop);
+            em.persist(product);
+            productIds.add(product.getId());
+            product.getCategories().forEach(category -> nbProductsByCategory.merge(category.getId(), 1L, Long::sum));
+            prices.accept(product.getPrice());
+        }
+        indexingOutboxService.productsChanged(productIds);
+        em.flush();
+        // The imported products are not read again, the session must not grow with the file
+        em.clear();
+        shopCounterService.productsAdded(shopId.orElse(null), nbProductsByCategory, prices);
+        categoryCounterService.productsAdded(nbProductsByCategory);
+        tableVersionService.tablesChanged(
+                TableVersionService.PRODUCTS, TableVersionService.SHOPS, TableVersionService.CATEGORIES
+        );
+    }
+
+    private void insertChunk(List<ProductImportRow> rows, Optional<Long> shopId, ProductImportReport report) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        try {
+            transaction.executeWithoutResult(status -> insert(rows, shopId));
+            report.addImported(rows.size());
+        } catch (RuntimeException e) {
+            for (ProductImportRow row : rows) {
+                try {
+                    transaction.executeWithoutResult(status -> insert(List.of(row), shopId));
+                    report.addImported(1);
+                } catch (RuntimeException rowException) {
+                    Throwable cause = NestedExceptionUtils.getMostSpecificCause(rowException);
+                    report.addError(row.getLine(), cause.getMessage());
+                }
+            }
+        }
+    }
+
+    private Product newProduct(Product row, Shop shop) {
+        // New entities for each attempt, a rolled back chunk leaves ids on the entities it persisted
+        Product product = new Product();
+        product.setPrice(row.getPrice());
+        product.setShop(shop);
+        row.getCategories().stream()
+                .map(Category::getId)
+                .distinct()
+                .forEach(id -> product.getCategories().add(em.getReference(Category.class, id)));
+        for (LocalizedProduct rowLocalizedProduct : row.getLocalizedProducts()) {
+            LocalizedProduct localizedProduct = new LocalizedProduct();
+            localizedProduct.setDescription(rowLocalizedProduct.getDescription());
+            localizedProduct.setLocale(rowLocalizedProduct.getLocale());
+            localizedProduct.setName(rowLocalizedProduct.getName());
+            product.getLocalizedProducts().add(localizedProduct);
+        }
+        return product;
+    }
+
+    private String validate(Product product, Optional<Long> shopId) {
+        // The products are all inserted in the shop of the import
+        if (product.getShop() != null && !shopId.equals(Optional.of(product.getShop().getId()))) {
+            return "The product is in the shop " + product.getShop().getId() + ", the import "
+                    + shopId.map(id -> "is in the shop " + id).orElse("has no shop");
+        }
+
+        Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .distinct()
+                    .collect(Collectors.joining("; "));
+        }
+
+        try {
+            ProductService.checkLocalizedProducts(product);
+        } catch (Exception e) {
+            return e.getMessage();
+        }
+
+        // The categories are checked against the catalog, a missing one would reject the whole chunk
+        for (Category category : product.getCategories()) {
+            if (!categoryCatalog.getCategory(category.getId()).isPresent()) {
+                return "Category with id " + category.getId() + " not found";
+            }
+        }
+        return null;
+    }
+}
@@ -1,85 +1,296 @@
 package fr.fullstack.shopapp.service;
 
+import fr.fullstack.shopapp.model.Category;
+import fr.fullstack.shopapp.model.Locale;
 import fr.fullstack.shopapp.model.LocalizedProduct;
 import fr.fullstack.shopapp.model.Product;
+import fr.fullstack.shopapp.model.Shop;
+import fr.fullstack.shopapp.pagination.Cursor;
+import fr.fullstack.shopapp.pagination.CursorPage;
+import fr.fullstack.shopapp.pagination.EstimatedPage;
+import fr.fullstack.shopapp.pagination.MultiGetResult;
+import fr.fullstack.shopapp.repository.ProductFilter;
 import fr.fullstack.shopapp.repository.ProductRepository;
+import fr.fullstack.shopapp.repository.ProductSearchRepository;
+import fr.fullstack.shopapp.repository.ResourceVersion;
+import fr.fullstack.shopapp.repository.ResourceVersionRepository;
+import fr.fullstack.shopapp.repository.ShopRepository;
+import fr.fullstack.shopapp.repository.TableStatisticsRepository;
+import fr.fullstack.shopapp.search.FacetCount;
+import fr.fullstack.shopapp.search.ProductSearchPage;
+import fr.fullstack.shopapp.util.LazyLoading;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
+    private static final String CURSOR_SORT = "id";
+
+    private static final List<Float> PRICE_BOUNDS = List.of(10f, 20f, 50f, 100f);
+
+    // The tables of a product response, also changed by the counters of each product write
+    private static final String[] PRODUCT_LIST_TABLES = {
+            TableVersionService.PRODUCTS, TableVersionService.SHOPS, TableVersionService.CATEGORIES
+    };
+
     @PersistenceContext
     private EntityManager em;
 
+    @Autowired
+    private CategoryCatalog categoryCatalog;
+
+    @Autowired
+    private CategoryCounterService categoryCounterService;
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private IndexingOutboxService indexingOutboxService;
+
+    @Autowired
+    private ProductSearchRepository productSearchRepository;
+
+    @Autowired
+    private ResourceVersionRepository resourceVersionRepository;
+
+    @Autowired
+    private ShopCounterService shopCounterService;
+
+    @Autowired
+    private ShopRepository shopRepository;
+
+    @Autowired
+    private TableStatisticsRepository tableStatisticsRepository;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
     @Transactional
     public Product createProduct(Product product) throws Exception {
-        // Check that product exists at least in french and check name's length
-        try {
-            checkLocalizedProducts(product);
-        } catch (Exception e) {
-            throw new Exception(e.getMessage());
-        }
-
-        try {
-            Product newProduct = productRepository.save(product);
-            em.flush();
-            em.refresh(newProduct);
-            return newProduct;
-        } catch (Exception e) {
-            throw new Exception(e.getMessage());
-        }
+        Product newProduct = saveProduct(product);
+        indexingOutboxService.productChanged(newProduct.getId());
+        shopCounterService.productAdded(getShopId(newProduct), getCategoryIds(newProduct), newProduct.getPrice());
+        categoryCounterService.categoriesChanged(Set.of(), getCategoryIds(newProduct));
+        tableVersionService.tablesChanged(PRODUCT_LIST_TABLES);
+        return refreshProduct(newProduct);
     }
 
+    @Transactional
     public void deleteProductById(long id) throws Exception {
         try {
-            getProduct(id);
+            Product product = getProduct(id);
+            Long shopId = getShopId(product);
+            Set<Long> categoryIds = getCategoryIds(product);
+            float price = product.getPrice();
             productRepository.deleteById(id);
+            em.flush();
+            indexingOutboxService.productChanged(id);
+            shopCounterService.productRemoved(shopId, categoryIds, price);
+            categoryCounterService.categoriesChanged(categoryIds, Set.of());
+            tableVersionService.tablesChanged(PRODUCT_LIST_TABLES);
         } catch (Exception e) {
             throw new Exception(e.getMessage());
         }
     }
 
+    @Transactional(readOnly = true)
     public Product getProductById(long id) throws Exception {
         try {
-            return getProduct(id);
+            return LazyLoading.initializeProduct(getProduct(id));
         } catch (Exception e) {
             throw new Exception(e.getMessage());
         }
     }
 
+    public ResourceVersion getProductListVersion() {
+        // The products are returned with their shop and their categories
+        return resourceVersionRepository.findTablesVersion(PRODUCT_LIST_TABLES);
+    }
+
+    public ResourceVersion getProductVersion(long id) throws Exception {
+        Optional<ResourceVersion> version = resourceVersionRepository.findProductVersion(id);
+        if (!version.isPresent()) {
+            throw new Exception("Product with id " + id + " not found");
+        }
+        return version.get();
+    }
+
+    @Transactional(readOnly = true)
+    public MultiGetResult<Product> getProductsByIds(List<Long> ids) throws Exception {
+        List<Long> distinctIds = MultiGetResult.getDistinctIds(ids);
+        // The collections of all the products are then batch fetched
+        List<Product> products = productRepository.findByIdIn(distinctIds);
+        return MultiGetResult.of(distinctIds, LazyLoading.initializeProducts(products), Product::getId);
+    }
+
+    @Transactional(readOnly = true)
     public Page<Product> getShopProductList(Optional<Long> shopId, Optional<Long> categoryId, Pageable pageable) {
         if (shopId.isPresent() && categoryId.isPresent()) {
-            return productRepository.findByShopAndCategory(shopId.get(), categoryId.get(), pageable);
+            return LazyLoading.initializeProducts(
+                    productRepository.findByShopAndCategory(shopId.get(), categoryId.get(), pageable)
+            );
         }
 
         if (shopId.isPresent()) {
-            return productRepository.findByShop(shopId.get(), pageable);
+            return LazyLoading.initializeProducts(productRepository.findByShop(shopId.get(), pageable));
         }
 
-        return productRepository.findByOrderByIdAsc(pageable);
+        return LazyLoading.initializeProducts(productRepository.findByOrderByIdAsc(pageable));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Product> getShopProductListByCursor(
+            Optional<Long> shopId,
+            Optional<Long> categoryId,
+            Optional<String> cursor,
+            Pageable pageable
+    ) throws Exception {
+        Cursor position = cursor.isPresent() ? Cursor.decode(cursor.get()) : null;
+        if (position != null && !position.getSort().equals(CURSOR_SORT)) {
+            throw new Exception("Cursor " + cursor.get() + " does not match the sort of the products");
+        }
+
+        long id = position == null ? 0 : position.getId();
+        boolean backward = position != null && position.isBackward();
+        // Read one more product to know if there is a next page
+        Pageable limit = PageRequest.of(0, pageable.getPageSize() + 1);
+        List<Product> products;
+        if (shopId.isPresent() && categoryId.isPresent()) {
+            products = backward
+                    ? productRepository.findByShopIdAndCategoriesIdAndIdLessThanOrderByIdDesc(
+                            shopId.get(), categoryId.get(), id, limit)
+                    : productRepository.findByShopIdAndCategoriesIdAndIdGreaterThanOrderByIdAsc(
+                            shopId.get(), categoryId.get(), id, limit);
+        } else if (shopId.isPresent()) {
+            products = backward
+                    ? productRepository.findByShopIdAndIdLessThanOrderByIdDesc(shopId.get(), id, limit)
+                    : productRepository.findByShopIdAndIdGreaterThanOrderByIdAsc(shopId.get(), id, limit);
+        } else {
+            products = backward
+                    ? productRepository.findByIdLessThanOrderByIdDesc(id, limit)
+                    : productRepository.findByIdGreaterThanOrderByIdAsc(id, limit);
+        }
+
+        return CursorPage.of(
+                LazyLoading.initializeProducts(products),
+                pageable.getPageSize(),
+                position,
+                product -> new Cursor(CURSOR_SORT, String.valueOf(product.getId()), product.getId(), false)
+        );
+    }
+
+    @Transactional(readOnly = true)
+    public Page<Product> getShopProductListWithEstimatedTotal(
+            Optional<Long> shopId,
+            Optional<Long> categoryId,
+            Pageable pageable
+    ) {
+        // The statistics only give the size of the whole table
+        if (shopId.isPresent()) {
+            return getShopProductList(shopId, categoryId, pageable);
+        }
+
+        Slice<Product> products = productRepository.findSliceByOrderByIdAsc(pageable);
+        long total = tableStatisticsRepository.estimateRowCount("products")
+                .orElseGet(productRepository::count);
+        return EstimatedPage.of(LazyLoading.initializeProducts(products), total);
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<Product> getShopProductSlice(Optional<Long> shopId, Optional<Long> categoryId, Pageable pageable) {
+        if (shopId.isPresent() && categoryId.isPresent()) {
+            return LazyLoading.initializeProducts(productRepository.findSliceByShopIdAndCategoriesIdOrderByIdAsc(
+                    shopId.get(), categoryId.get(), pageable
+            ));
+        }
+
+        if (shopId.isPresent()) {
+            return LazyLoading.initializeProducts(
+                    productRepository.findSliceByShopIdOrderByIdAsc(shopId.get(), pageable)
+            );
+        }
+
+        return LazyLoading.initializeProducts(productRepository.findSliceByOrderByIdAsc(pageable));
+    }
+
+    @Transactional(readOnly = true)
+    public ProductSearchPage searchProducts(
+            Optional<String> text,
+            Optional<String> locale,
+            Optional<Long> shopId,
+            Optional<Long> categoryId,
+            Optional<Float> minPrice,
+            Optional<Float> maxPrice,
+            Optional<List<Float>> priceBounds,
+            Pageable pageable
+    ) throws Exception {
+        List<Locale> locales = locale.isPresent() ? List.of(getLocale(locale.get())) : List.of(Locale.values());
+        List<Float> bounds = priceBounds.orElse(PRICE_BOUNDS);
+        for (int i = 1; i < bounds.size(); i++) {
+            if (bounds.get(i - 1) >= bounds.get(i)) {
+                throw new Exception("The price bounds must be in ascending order");
+            }
+        }
+
+        ProductSearchPage page = productSearchRepository.search(
+                text.filter(value -> !value.isBlank()),
+                locales,
+                new ProductFilter(shopId, categoryId, minPrice, maxPrice),
+                bounds,
+                pageable
+        );
+        LazyLoading.initializeProducts(page.getContent());
+
+        // Names of the facets: the categories are in memory, the shops are read with one query
+        for (FacetCount facet : page.getCategories()) {
+            categoryCatalog.getCategory(facet.getId()).ifPresent(category -> facet.setName(category.getName()));
+        }
+        Map<Long, String> shopNames = new HashMap<>();
+        List<Long> shopIds = page.getShops().stream().map(FacetCount::getId).collect(Collectors.toList());
+        shopRepository.findAllById(shopIds).forEach(shop -> shopNames.put(shop.getId(), shop.getName()));
+        page.getShops().forEach(facet -> facet.setName(shopNames.get(facet.getId())));
+        return page;
     }
 
     @Transactional
     public Product updateProduct(Product product) throws Exception {
         try {
-            getProduct(product.getId());
-            return this.createProduct(product);
+            Product oldProduct = getProduct(product.getId());
+            Long oldShopId = getShopId(oldProduct);
+            Set<Long> oldCategoryIds = getCategoryIds(oldProduct);
+            float oldPrice = oldProduct.getPrice();
+            Product newProduct = saveProduct(product);
+            productRepository.touch(newProduct.getId());
+            indexingOutboxService.productChanged(newProduct.getId());
+            shopCounterService.productUpdated(
+                    oldShopId, oldCategoryIds, oldPrice,
+                    getShopId(newProduct), getCategoryIds(newProduct), newProduct.getPrice()
+            );
+            categoryCounterService.categoriesChanged(oldCategoryIds, getCategoryIds(newProduct));
+            tableVersionService.tablesChanged(PRODUCT_LIST_TABLES);
+            return refreshProduct(newProduct);
         } catch (Exception e) {
             throw new Exception(e.getMessage());
         }
     }
 
-    private void checkLocalizedProducts(Product product) throws Exception {
+    // Also used to validate the rows of the imports
+    static void checkLocalizedProducts(Product product) throws Exception {
         Optional<LocalizedProduct> localizedProductFr = product.getLocalizedProducts()
                 .stream().filter(o -> o.getLocale().equals("FR")).findFirst();
 
@@ -89,6 +300,18 @@ public class ProductService {
         }
     }
 
+    private Set<Long> getCategoryIds(Product product) {
+        return product.getCategories().stream().map(Category::getId).collect(Collectors.toSet());
+    }
+
+    private Locale getLocale(String locale) throws Exception {
+        try {
+            return Locale.valueOf(locale.toUpperCase(java.util.Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new Exception("Locale must be FR or EN");
+        }
+    }
+
     private Product getProduct(Long id) throws Exception {
         Optional<Product> product = productRepository.findById(id);
         if (!product.isPresent()) {
@@ -97,4 +320,39 @@ public class ProductService {
         return product.get();
     }
 
+    private Long getShopId(Product product) {
+        Shop shop = product.getShop();
+        return shop == null ? null : shop.getId();
+    }
+
+    private Product refreshProduct(Product product) throws Exception {
+        try {
+            em.refresh(product);
+            // The counters of the shop have been updated in database, the managed shop may be stale
+            if (product.getShop() != null) {
+                em.refresh(product.getShop());
+            }
+            return LazyLoading.initializeProduct(product);
+        } catch (Exception e) {
+            throw new Exception(e.getMessage());
+        }
+    }
+
+    private Product saveProduct(Product product) throws Exception {
+        // Check that product exists at least in french and check name's length
+        try {
+            checkLocalizedProducts(product);
+        } catch (Exception e) {
+            throw new Exception(e.getMessage());
+        }
+
+        try {
+            Product newProduct = productRepository.save(product);
+            em.flush();
+            return newProduct;
+        } catch (Exception e) {
+            throw new Exception(e.getMessage());
+        }
+    }
+
 }
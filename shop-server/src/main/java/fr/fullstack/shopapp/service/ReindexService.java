@@ -0,0 +1,148 @@
+package fr.fullstack.shopapp.service;
+
+import fr.fullstack.shopapp.model.IndexedEntity;
+import fr.fullstack.shopapp.search.ElasticsearchIndexSwitch;
+import fr.fullstack.shopapp.search.ReindexJob;
+import fr.fullstack.shopapp.search.ReindexStatus;
+import org.hibernate.search.backend.elasticsearch.ElasticsearchBackend;
+import org.hibernate.search.mapper.orm.Search;
+import org.hibernate.search.mapper.orm.mapping.SearchMapping;
+import org.hibernate.search.mapper.orm.scope.SearchScope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Rebuilds the search indexes with the MassIndexer, in the background and one reindexing at a time. With
+ * Elasticsearch, the documents are written to new indexes, which replace the searched ones at the end
+ * (ElasticsearchIndexSwitch): the searches keep working meanwhile. The embedded Lucene indexes are purged then rebuilt
+ * in place. The indexing outbox waits for the end of the reindexing, the changes made meanwhile are indexed after it.
+ */
+@Service
+public class ReindexService {
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
+    private static final int DEFAULT_THREADS = 2;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReindexService.class);
+
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    // Each loading thread holds a connection of the pool (10 connections by default), the id loading thread one more
+    private static final int MAX_THREADS = 4;
+
+    @PersistenceUnit
+    private EntityManagerFactory emf;
+
+    private final AtomicReference<ReindexJob> job = new AtomicReference<>();
+
+    public ReindexStatus getStatus() throws Exception {
+        ReindexJob current = job.get();
+        if (current == null) {
+            throw new Exception("No reindexing was started");
+        }
+        return current.getStatus();
+    }
+
+    public boolean isRunning() {
+        ReindexJob current = job.get();
+        return current != null && current.isRunning();
+    }
+
+    public ReindexStatus startReindexing(
+            Optional<String> entity,
+            Optional<Integer> threads,
+            Optional<Integer> batchSize,
+            Optional<Integer> maxEntitiesPerSecond
+    ) throws Exception {
+        List<IndexedEntity> entities = entity.isPresent()
+                ? List.of(getEntity(entity.get()))
+                : List.of(IndexedEntity.values());
+        int nbThreads = threads.orElse(DEFAULT_THREADS);
+        if (nbThreads < 1 || nbThreads > MAX_THREADS) {
+            throw new Exception("Threads must be between 1 and " + MAX_THREADS);
+        }
+        int size = batchSize.orElse(DEFAULT_BATCH_SIZE);
+        if (size < 1 || size > MAX_BATCH_SIZE) {
+            throw new Exception("Batch size must be between 1 and " + MAX_BATCH_SIZE);
+        }
+        if (maxEntitiesPerSecond.isPresent() && maxEntitiesPerSecond.get() < 1) {
+            throw new Exception("The maximum rate must be positive");
+        }
+
+        ReindexJob newJob = new ReindexJob(entities, maxEntitiesPerSecond);
+        ReindexJob previous = job.get();
+        if ((previous != null && previous.isRunning()) || !job.compareAndSet(previous, newJob)) {
+            throw new Exception("A reindexing is already running");
+        }
+
+        SearchMapping mapping = Search.mapping(emf);
+        SearchScope<Object> scope = mapping.scope(
+                entities.stream().map(IndexedEntity::getEntityClass).collect(Collectors.toList())
+        );
+        ElasticsearchIndexSwitch indexSwitch = null;
+        try {
+            if (mapping.backend() instanceof ElasticsearchBackend) {
+                indexSwitch = ElasticsearchIndexSwitch.prepare(mapping, scope);
+            }
+            ElasticsearchIndexSwitch preparedSwitch = indexSwitch;
+            scope.massIndexer()
+                    .threadsToLoadObjects(nbThreads)
+                    .batchSizeToLoadObjects(size)
+                    // The new Elasticsearch indexes are empty
+                    .purgeAllOnStart(indexSwitch == null)
+                    .monitor(newJob)
+                    .start()
+                    .whenComplete((result, failure) -> finish(newJob, preparedSwitch, failure));
+        } catch (IOException | RuntimeException e) {
+            finish(newJob, indexSwitch, e);
+            throw new Exception(e.getMessage());
+        }
+        return newJob.getStatus();
+    }
+
+    private void finish(ReindexJob finishedJob, ElasticsearchIndexSwitch indexSwitch, Throwable failure) {
+        Throwable error = failure;
+        if (indexSwitch != null) {
+            try {
+                if (error == null) {
+                    indexSwitch.commit();
+                }
+            } catch (IOException | RuntimeException e) {
+                error = e;
+            }
+            // The searches read the rebuilt indexes, or still the previous ones
+            try {
+                if (error == null) {
+                    indexSwitch.deletePreviousIndexes();
+                } else {
+                    indexSwitch.rollback();
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Cleanup of the indexes after the reindexing failed: {}", e.getMessage());
+            }
+        }
+
+        if (error == null) {
+            finishedJob.succeeded();
+        } else {
+            finishedJob.failed(error);
+        }
+    }
+
+    private IndexedEntity getEntity(String entity) throws Exception {
+        try {
+            return IndexedEntity.valueOf(entity.toUpperCase(java.util.Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new Exception("Entity must be SHOP or PRODUCT");
+        }
+    }
+}
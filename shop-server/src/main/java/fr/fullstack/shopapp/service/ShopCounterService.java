@@ -0,0 +1,118 @@
+package fr.fullstack.shopapp.service;
+
+import fr.fullstack.shopapp.repository.ShopRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.DoubleSummaryStatistics;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the statistics of the shops: the nbProducts and nbCategories counters, the prices of their products and
+ * the number of their products in each category. The updates are run in the transaction of the caller, once the
+ * products have been flushed, and apply the change of the products: the products of the shop are only read again
+ * when a removed product had its lowest or highest price. A null shop id stands for a product without shop.
+ */
+@Service
+public class ShopCounterService {
+    @Autowired
+    private ShopRepository shopRepository;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
+    // To call before the category is removed from the products
+    @Transactional
+    public void categoryRemoved(long categoryId) {
+        shopRepository.removeCategory(categoryId);
+        shopRepository.deleteCategoryCounters(categoryId);
+    }
+
+    @Transactional
+    public void productAdded(Long shopId, Set<Long> categoryIds, float price) {
+        DoubleSummaryStatistics prices = new DoubleSummaryStatistics();
+        prices.accept(price);
+        productsAdded(shopId, countOne(categoryIds, 1), prices);
+    }
+
+    @Transactional
+    public void productRemoved(Long shopId, Set<Long> categoryIds, float price) {
+        if (shopId != null) {
+            addToCategories(shopId, countOne(categoryIds, -1));
+            shopRepository.removeProduct(shopId, price);
+        }
+    }
+
+    @Transactional
+    public void productUpdated(
+            Long oldShopId,
+            Set<Long> oldCategoryIds,
+            float oldPrice,
+            Long newShopId,
+            Set<Long> newCategoryIds,
+            float newPrice
+    ) {
+        if (!Objects.equals(oldShopId, newShopId) || oldPrice != newPrice) {
+            productRemoved(oldShopId, oldCategoryIds, oldPrice);
+            productAdded(newShopId, newCategoryIds, newPrice);
+            return;
+        }
+
+        // Same shop and price: only the categories may have changed
+        if (newShopId != null && !oldCategoryIds.equals(newCategoryIds)) {
+            Map<Long, Long> nbProductsByCategory = countOne(newCategoryIds, 1);
+            oldCategoryIds.forEach(categoryId -> nbProductsByCategory.merge(categoryId, -1L, Long::sum));
+            addToCategories(newShopId, nbProductsByCategory);
+            shopRepository.refreshNbCategories(newShopId);
+        }
+    }
+
+    /**
+     * @param prices the prices of the added products
+     */
+    @Transactional
+    public void productsAdded(Long shopId, Map<Long, Long> nbProductsByCategory, DoubleSummaryStatistics prices) {
+        if (shopId != null && prices.getCount() > 0) {
+            addToCategories(shopId, nbProductsByCategory);
+            shopRepository.addProducts(shopId, prices.getCount(), prices.getMin(), prices.getMax(), prices.getSum());
+        }
+    }
+
+    // Off unless shop.counters.rebuild-cron is set, the counters drift only with changes made outside the application
+    @Scheduled(cron = "${shop.counters.rebuild-cron:-}")
+    @Transactional
+    public int rebuildCounters() {
+        shopRepository.insertAllCategoryCounters();
+        shopRepository.rebuildCategoryCounters();
+        tableVersionService.tablesChanged(TableVersionService.SHOPS);
+        return shopRepository.rebuildCounters();
+    }
+
+    private void addToCategories(long shopId, Map<Long, Long> nbProductsByCategory) {
+        List<Long> addedCategoryIds = nbProductsByCategory.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        if (!addedCategoryIds.isEmpty()) {
+            shopRepository.insertCategoryCounters(shopId, addedCategoryIds);
+        }
+        nbProductsByCategory.forEach((categoryId, delta) -> {
+            if (delta != 0) {
+                shopRepository.addToNbProductsOfCategory(shopId, categoryId, delta);
+            }
+        });
+    }
+
+    private Map<Long, Long> countOne(Set<Long> categoryIds, long delta) {
+        Map<Long, Long> nbProductsByCategory = new HashMap<>();
+        categoryIds.forEach(categoryId -> nbProductsByCategory.put(categoryId, delta));
+        return nbProductsByCategory;
+    }
+}
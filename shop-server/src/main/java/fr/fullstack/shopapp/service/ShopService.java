@@ -1,37 +1,95 @@
 package fr.fullstack.shopapp.service;
 
-import fr.fullstack.shopapp.model.Product;
 import fr.fullstack.shopapp.model.Shop;
+import fr.fullstack.shopapp.model.WeeklySchedule;
+import fr.fullstack.shopapp.pagination.Cursor;
+import fr.fullstack.shopapp.pagination.CursorPage;
+import fr.fullstack.shopapp.pagination.EstimatedPage;
+import fr.fullstack.shopapp.pagination.MultiGetResult;
+import fr.fullstack.shopapp.repository.ProductRepository;
+import fr.fullstack.shopapp.repository.ResourceVersion;
+import fr.fullstack.shopapp.repository.ResourceVersionRepository;
+import fr.fullstack.shopapp.repository.ShopFilter;
+import fr.fullstack.shopapp.repository.ShopOrder;
 import fr.fullstack.shopapp.repository.ShopRepository;
+import fr.fullstack.shopapp.repository.ShopSearchHit;
+import fr.fullstack.shopapp.repository.ShopSearchRepository;
+import fr.fullstack.shopapp.repository.ShopSort;
+import fr.fullstack.shopapp.repository.ShopStatistics;
+import fr.fullstack.shopapp.repository.ShopStatisticsRepository;
+import fr.fullstack.shopapp.repository.TableStatisticsRepository;
+import fr.fullstack.shopapp.util.LazyLoading;
 import org.hibernate.search.mapper.orm.Search;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class ShopService {
+    private static final int REBUILD_PAGE_SIZE = 500;
+
     @PersistenceContext
     private EntityManager em;
 
+    @Autowired
+    private CategoryCatalog categoryCatalog;
+
+    @Autowired
+    private IndexingOutboxService indexingOutboxService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ResourceVersionRepository resourceVersionRepository;
+
+    // Time zone of the opening hours, in which openNow takes the current time: not the one of the server
+    @Value("${shop.schedule.zone:Europe/Paris}")
+    private ZoneId scheduleZone;
+
+    @Autowired
+    private ShopCounterService shopCounterService;
+
     @Autowired
     private ShopRepository shopRepository;
 
+    @Autowired
+    private ShopSearchRepository shopSearchRepository;
+
+    @Autowired
+    private ShopStatisticsRepository shopStatisticsRepository;
+
+    @Autowired
+    private TableStatisticsRepository tableStatisticsRepository;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
     @Transactional
     public Shop createShop(Shop shop) throws Exception {
         try {
+            shop.setOpeningSchedule(WeeklySchedule.of(shop.getOpeningHours()));
             Shop newShop = shopRepository.save(shop);
-            // Refresh the entity after the save. Otherwise, @Formula does not work.
+            indexingOutboxService.shopChanged(newShop.getId());
+            tableVersionService.tablesChanged(TableVersionService.SHOPS);
+            // Refresh the entity after the save. Otherwise, the counters are not read from the database.
             em.flush();
             em.refresh(newShop);
-            return newShop;
+            return LazyLoading.initializeShop(newShop);
         } catch (Exception e) {
             throw new Exception(e.getMessage());
         }
@@ -40,129 +98,280 @@ public class ShopService {
     @Transactional
     public void deleteShopById(long id) throws Exception {
         try {
-            Shop shop = getShop(id);
-            // delete nested relations with products
-            deleteNestedRelations(shop);
+            getShop(id);
+            // The products lose their shop
+            indexingOutboxService.productsOfShopChanged(id);
+            productRepository.detachFromShop(id);
             shopRepository.deleteById(id);
+            indexingOutboxService.shopChanged(id);
+            tableVersionService.tablesChanged(TableVersionService.PRODUCTS, TableVersionService.SHOPS);
         } catch (Exception e) {
             throw new Exception(e.getMessage());
         }
     }
 
+    @Transactional(readOnly = true)
     public Shop getShopById(long id) throws Exception {
         try {
-            return getShop(id);
+            return LazyLoading.initializeShop(getShop(id));
         } catch (Exception e) {
             throw new Exception(e.getMessage());
         }
     }
 
+    @Transactional(readOnly = true)
     public Page<Shop> getShopList(
             Optional<String> sortBy,
+            Optional<String> sortDirection,
             Optional<Boolean> inVacations,
-            Optional<String> createdBefore,
             Optional<String> createdAfter,
+            Optional<String> createdBefore,
+            Optional<String> openAt,
+            Optional<Boolean> openNow,
             Pageable pageable
-    ) {
-        // SORT
-        if (sortBy.isPresent()) {
-            switch (sortBy.get()) {
-                case "name":
-                    return shopRepository.findByOrderByNameAsc(pageable);
-                case "createdAt":
-                    return shopRepository.findByOrderByCreatedAtAsc(pageable);
-                default:
-                    return shopRepository.findByOrderByNbProductsAsc(pageable);
-            }
+    ) throws Exception {
+        return LazyLoading.initializeShops(shopRepository.findPage(
+                getFilter(inVacations, createdAfter, createdBefore, openAt, openNow),
+                ShopOrder.fromParameters(sortBy, sortDirection),
+                pageable
+        ));
+    }
+
+    public ResourceVersion getShopListVersion() {
+        return resourceVersionRepository.findTablesVersion(TableVersionService.SHOPS);
+    }
+
+    public ResourceVersion getShopListVersion(Optional<String> openAt, Optional<Boolean> openNow) {
+        ResourceVersion version = getShopListVersion();
+        if (openAt.isPresent() || !openNow.orElse(false)) {
+            return version;
         }
+        // The shops open now change with the clock, without any write: the slot of the current time is in the tag
+        return new ResourceVersion(version.getETag() + "-slot" + getCurrentSlot(), version.getLastModified());
+    }
 
-        // FILTERS
-        Page<Shop> shopList = getShopListWithFilter(inVacations, createdBefore, createdAfter, pageable);
-        if (shopList != null) {
-            return shopList;
+    @Transactional(readOnly = true)
+    public CursorPage<Shop> getShopListByCursor(
+            Optional<String> sortBy,
+            Optional<String> sortDirection,
+            Optional<Boolean> inVacations,
+            Optional<String> createdAfter,
+            Optional<String> createdBefore,
+            Optional<String> openAt,
+            Optional<Boolean> openNow,
+            Optional<String> cursor,
+            Pageable pageable
+    ) throws Exception {
+        ShopOrder order = ShopOrder.fromParameters(sortBy, sortDirection);
+        Cursor position = cursor.isPresent() ? Cursor.decode(cursor.get()) : null;
+        if (position != null && !position.getSort().equals(order.getName())) {
+            throw new Exception("Cursor " + cursor.get() + " does not match the sort " + order.getName());
         }
 
-        // NONE
-        return shopRepository.findByOrderByIdAsc(pageable);
+        ShopFilter filter = getFilter(inVacations, createdAfter, createdBefore, openAt, openNow);
+        // Read one more shop to know if there is a next page
+        List<Shop> shops = shopRepository.findByKeyset(filter, order, position, pageable.getPageSize() + 1);
+        return CursorPage.of(
+                LazyLoading.initializeShops(shops),
+                pageable.getPageSize(),
+                position,
+                shop -> new Cursor(order.getName(), order.getSort().getKey(shop), shop.getId(), false)
+        );
     }
 
-    @Transactional
-    public Shop updateShop(Shop shop) throws Exception {
-        try {
-            getShop(shop.getId());
-            return this.createShop(shop);
-        } catch (Exception e) {
-            throw new Exception(e.getMessage());
+    @Transactional(readOnly = true)
+    public Page<Shop> getShopListWithEstimatedTotal(
+            Optional<String> sortBy,
+            Optional<String> sortDirection,
+            Optional<Boolean> inVacations,
+            Optional<String> createdAfter,
+            Optional<String> createdBefore,
+            Optional<String> openAt,
+            Optional<Boolean> openNow,
+            Pageable pageable
+    ) throws Exception {
+        ShopFilter filter = getFilter(inVacations, createdAfter, createdBefore, openAt, openNow);
+        // The statistics only give the size of the whole table
+        if (!filter.isEmpty()) {
+            return getShopList(
+                    sortBy, sortDirection, inVacations, createdAfter, createdBefore, openAt, openNow, pageable
+            );
         }
+
+        Slice<Shop> shops = shopRepository.findSlice(filter, ShopOrder.fromParameters(sortBy, sortDirection), pageable);
+        long total = tableStatisticsRepository.estimateRowCount("shops")
+                .orElseGet(shopRepository::count);
+        return EstimatedPage.of(LazyLoading.initializeShops(shops), total);
     }
 
-    private void deleteNestedRelations(Shop shop) {
-        List<Product> products = shop.getProducts();
-        for (int i = 0; i < products.size(); i++) {
-            Product product = products.get(i);
-            product.setShop(null);
-            em.merge(product);
-            em.flush();
+    @Transactional(readOnly = true)
+    public Slice<Shop> getShopSlice(
+            Optional<String> sortBy,
+            Optional<String> sortDirection,
+            Optional<Boolean> inVacations,
+            Optional<String> createdAfter,
+            Optional<String> createdBefore,
+            Optional<String> openAt,
+            Optional<Boolean> openNow,
+            Pageable pageable
+    ) throws Exception {
+        return LazyLoading.initializeShops(shopRepository.findSlice(
+                getFilter(inVacations, createdAfter, createdBefore, openAt, openNow),
+                ShopOrder.fromParameters(sortBy, sortDirection),
+                pageable
+        ));
+    }
+
+    @Transactional(readOnly = true)
+    public ShopStatistics getShopStatistics(long id) throws Exception {
+        Optional<ShopStatistics> statistics = shopStatisticsRepository.findByShopId(id);
+        if (!statistics.isPresent()) {
+            throw new Exception("Shop with id " + id + " not found");
         }
+
+        // The names of the categories are in memory
+        statistics.get().getCategories().forEach(count -> categoryCatalog.getCategory(count.getId())
+                .ifPresent(category -> count.setName(category.getName())));
+        return statistics.get();
     }
 
-    private Shop getShop(Long id) throws Exception {
-        Optional<Shop> shop = shopRepository.findById(id);
-        if (!shop.isPresent()) {
+    public ResourceVersion getShopStatisticsVersion(long id) throws Exception {
+        // The statistics bump the version of the shop, the names of the categories come from the catalog
+        ResourceVersion shop = getShopVersion(id);
+        ResourceVersion categories = categoryCatalog.getCategoriesVersion();
+        return new ResourceVersion("stats-" + shop.getETag() + "-" + categories.getETag(), Optional.empty());
+    }
+
+    public ResourceVersion getShopVersion(long id) throws Exception {
+        Optional<ResourceVersion> version = resourceVersionRepository.findShopVersion(id);
+        if (!version.isPresent()) {
             throw new Exception("Shop with id " + id + " not found");
         }
-        return shop.get();
+        return version.get();
+    }
+
+    @Transactional(readOnly = true)
+    public MultiGetResult<Shop> getShopsByIds(List<Long> ids) throws Exception {
+        List<Long> distinctIds = MultiGetResult.getDistinctIds(ids);
+        List<Shop> shops = shopRepository.findAllById(distinctIds);
+        return MultiGetResult.of(distinctIds, LazyLoading.initializeShops(shops), Shop::getId);
     }
 
-    private Page<Shop> getShopListWithFilter(
+    public int rebuildCounters() {
+        return shopCounterService.rebuildCounters();
+    }
+
+    // For the shops inserted without the application, such as by fill_tables.sql
+    @Transactional
+    public int rebuildOpeningSchedules() {
+        ShopFilter noFilter = new ShopFilter(Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty());
+        int count = 0;
+        Cursor position = null;
+        List<Shop> shops;
+        do {
+            shops = LazyLoading.initializeShops(
+                    shopRepository.findByKeyset(noFilter, ShopOrder.of(ShopSort.ID), position, REBUILD_PAGE_SIZE)
+            );
+            for (Shop shop : shops) {
+                count += shopRepository.updateOpeningSchedule(shop.getId(), WeeklySchedule.of(shop.getOpeningHours()));
+            }
+            if (!shops.isEmpty()) {
+                Shop last = shops.get(shops.size() - 1);
+                position = new Cursor(ShopSort.ID.getProperty(), ShopSort.ID.getKey(last), last.getId(), false);
+            }
+            em.clear();
+        } while (shops.size() == REBUILD_PAGE_SIZE);
+        return count;
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Shop> searchShops(
+            Optional<String> text,
             Optional<Boolean> inVacations,
             Optional<String> createdAfter,
             Optional<String> createdBefore,
+            Optional<String> cursor,
             Pageable pageable
-    ) {
-        if (inVacations.isPresent() && createdBefore.isPresent() && createdAfter.isPresent()) {
-            return shopRepository.findByInVacationsAndCreatedAtGreaterThanAndCreatedAtLessThan(
-                    inVacations.get(),
-                    LocalDate.parse(createdAfter.get()),
-                    LocalDate.parse(createdBefore.get()),
-                    pageable
-            );
+    ) throws Exception {
+        Cursor position = cursor.isPresent() ? Cursor.decode(cursor.get()) : null;
+        if (position != null && !position.getSort().equals(ShopSearchRepository.SORT)) {
+            throw new Exception("Cursor " + cursor.get() + " is not a cursor of the search");
         }
 
-        if (inVacations.isPresent() && createdBefore.isPresent()) {
-            return shopRepository.findByInVacationsAndCreatedAtLessThan(
-                    inVacations.get(), LocalDate.parse(createdBefore.get()), pageable
-            );
+        // Read one more hit to know if there is a next page, the search only goes forward
+        List<ShopSearchHit> hits = shopSearchRepository.search(
+                text.filter(value -> !value.isBlank()),
+                getFilter(inVacations, createdAfter, createdBefore, Optional.empty(), Optional.empty()),
+                position,
+                pageable.getPageSize() + 1
+        );
+        List<Shop> shops = new ArrayList<>();
+        for (ShopSearchHit hit : hits.subList(0, Math.min(pageable.getPageSize(), hits.size()))) {
+            shops.add(LazyLoading.initializeShop(hit.getShop()));
         }
+        String nextCursor = hits.size() > pageable.getPageSize()
+                ? shopSearchRepository.getCursor(hits.get(pageable.getPageSize() - 1)).encode()
+                : null;
+        return new CursorPage<>(shops, pageable.getPageSize(), null, nextCursor);
+    }
 
-        if (inVacations.isPresent() && createdAfter.isPresent()) {
-            return shopRepository.findByInVacationsAndCreatedAtGreaterThan(
-                    inVacations.get(), LocalDate.parse(createdAfter.get()), pageable
-            );
+    @Transactional
+    public Shop updateShop(Shop shop) throws Exception {
+        try {
+            getShop(shop.getId());
+            shopRepository.touch(shop.getId());
+            return this.createShop(shop);
+        } catch (Exception e) {
+            throw new Exception(e.getMessage());
         }
+    }
 
-        if (inVacations.isPresent()) {
-            return shopRepository.findByInVacations(inVacations.get(), pageable);
-        }
+    private int getCurrentSlot() {
+        LocalDateTime now = LocalDateTime.now(scheduleZone);
+        return WeeklySchedule.getSlot(now.getDayOfWeek().getValue(), now.toLocalTime());
+    }
 
-        if (createdBefore.isPresent() && createdAfter.isPresent()) {
-            return shopRepository.findByCreatedAtBetween(
-                    LocalDate.parse(createdAfter.get()), LocalDate.parse(createdBefore.get()), pageable
-            );
-        }
+    private ShopFilter getFilter(
+            Optional<Boolean> inVacations,
+            Optional<String> createdAfter,
+            Optional<String> createdBefore,
+            Optional<String> openAt,
+            Optional<Boolean> openNow
+    ) throws Exception {
+        return new ShopFilter(
+                inVacations,
+                createdAfter.map(LocalDate::parse),
+                createdBefore.map(LocalDate::parse),
+                getOpenSlot(openAt, openNow)
+        );
+    }
 
-        if (createdBefore.isPresent()) {
-            return shopRepository.findByCreatedAtLessThan(
-                    LocalDate.parse(createdBefore.get()), pageable
-            );
+    private Optional<Integer> getOpenSlot(Optional<String> openAt, Optional<Boolean> openNow) throws Exception {
+        if (openAt.isPresent()) {
+            // <day>,<time>, day 1 being monday
+            String[] dayAndTime = openAt.get().split(",");
+            try {
+                int day = Integer.parseInt(dayAndTime[0].trim());
+                if (dayAndTime.length != 2 || day < 1 || day > 7) {
+                    throw new IllegalArgumentException();
+                }
+                return Optional.of(WeeklySchedule.getSlot(day, LocalTime.parse(dayAndTime[1].trim())));
+            } catch (RuntimeException e) {
+                throw new Exception("openAt must be a day from 1 (monday) to 7 and a time, for example 1,09:30");
+            }
         }
 
-        if (createdAfter.isPresent()) {
-            return shopRepository.findByCreatedAtGreaterThan(
-                    LocalDate.parse(createdAfter.get()), pageable
-            );
+        if (openNow.orElse(false)) {
+            return Optional.of(getCurrentSlot());
         }
+        return Optional.empty();
+    }
 
-        return null;
+    private Shop getShop(Long id) throws Exception {
+        Optional<Shop> shop = shopRepository.findById(id);
+        if (!shop.isPresent()) {
+            throw new Exception("Shop with id " + id + " not found");
+        }
+        return shop.get();
     }
 }
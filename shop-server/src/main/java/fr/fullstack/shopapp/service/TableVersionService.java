@@ -0,0 +1,57 @@
+package fr.fullstack.shopapp.service;
+
+import fr.fullstack.shopapp.repository.ResourceVersionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+
+/**
+ * Maintains the versions of the products, shops and categories tables (table_versions), from which the validators
+ * of the list responses are read. A write declares the tables it changes, their versions are bumped once it is
+ * committed, in a transaction of their own: the row of a table is not locked for the whole duration of the writes,
+ * and a list read with a new version already contains the change.
+ */
+@Service
+public class TableVersionService {
+    public static final String CATEGORIES = "categories";
+
+    public static final String PRODUCTS = "products";
+
+    public static final String SHOPS = "shops";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TableVersionService.class);
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ResourceVersionRepository resourceVersionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTablesChanged(TablesChangedEvent event) {
+        // The listener runs after the commit, while the finished transaction is still bound to the thread
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transaction.executeWithoutResult(status -> resourceVersionRepository.touchTables(event.getTables()));
+        } catch (RuntimeException e) {
+            // The write is committed: the lists keep their validators until the next write of the tables
+            LOGGER.error("Versions of the tables {} not bumped", event.getTables(), e);
+        }
+    }
+
+    public void tablesChanged(String... tables) {
+        eventPublisher.publishEvent(new TablesChangedEvent(Set.of(tables)));
+    }
+}
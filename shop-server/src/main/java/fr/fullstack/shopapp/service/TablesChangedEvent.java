@@ -0,0 +1,18 @@
+package fr.fullstack.shopapp.service;
+
+import java.util.Set;
+
+/**
+ * Published by a write with the tables it changes, see TableVersionService.
+ */
+public class TablesChangedEvent {
+    private final Set<String> tables;
+
+    public TablesChangedEvent(Set<String> tables) {
+        this.tables = tables;
+    }
+
+    public Set<String> getTables() {
+        return tables;
+    }
+}
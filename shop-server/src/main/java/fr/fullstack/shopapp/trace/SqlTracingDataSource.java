@@ -0,0 +1,161 @@
+package fr.fullstack.shopapp.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Times the SQL statements executed on the connections. A statement slower than the threshold of the settings is
+ * always logged at WARN, with its bind parameters and the application method that sent it; the statements of the
+ * sampled requests are logged at INFO, and all of them with the sql logger at DEBUG.
+ */
+public class SqlTracingDataSource extends DelegatingDataSource implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TraceSettings.SQL_LOGGER);
+
+    private static final int MAX_VALUE_LENGTH = 100;
+
+    private static final String MESSAGE = "query trace={} elapsed_ms={} caller={} sql=\"{}\" params={}";
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private final TraceSettings settings;
+
+    public SqlTracingDataSource(DataSource target, TraceSettings settings) {
+        super(target);
+        this.settings = settings;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Closes the pool at the shutdown, in place of the wrapped data source
+        if (getTargetDataSource() instanceof Closeable) {
+            ((Closeable) getTargetDataSource()).close();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return traceStatements(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return traceStatements(super.getConnection(username, password));
+    }
+
+    private static String format(Object value) {
+        if (value == null || value instanceof Number || value instanceof Boolean || value instanceof Temporal
+                || value instanceof java.util.Date) {
+            return String.valueOf(value);
+        }
+        if (value instanceof String) {
+            String string = (String) value;
+            return "'" + (string.length() > MAX_VALUE_LENGTH ? string.substring(0, MAX_VALUE_LENGTH) + "..." : string)
+                   + "'";
+        }
+        // Streams, arrays and large objects
+        return value.getClass().getSimpleName();
+    }
+
+    /**
+     * @return the innermost service method of the stack, or else the innermost method of the application
+     */
+    private static String getCaller() {
+        List<StackWalker.StackFrame> frames = STACK_WALKER.walk(stack -> stack
+                .filter(frame -> frame.getClassName().startsWith("fr.fullstack.shopapp.")
+                                 && !frame.getClassName().startsWith("fr.fullstack.shopapp.metrics.")
+                                 && !frame.getClassName().startsWith("fr.fullstack.shopapp.trace.")
+                                 && !frame.getClassName().contains("$$"))
+                .collect(Collectors.toList()));
+        return frames.stream()
+                .filter(frame -> frame.getClassName().startsWith("fr.fullstack.shopapp.service."))
+                .findFirst()
+                .or(() -> frames.stream().findFirst())
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+                              + "." + frame.getMethodName())
+                .orElse("-");
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Connection traceStatements(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement) {
+                        // The plain statements get their SQL at the execution
+                        String sql = args != null && args[0] instanceof String ? (String) args[0] : null;
+                        return traceExecutions((Statement) result, method.getReturnType(), sql);
+                    }
+                    return result;
+                }
+        );
+    }
+
+    private Object traceExecutions(Statement statement, Class<?> type, String preparedSql) {
+        List<Object> parameters = new ArrayList<>();
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+                    && method.getDeclaringClass() != Statement.class) {
+                int index = (Integer) args[0] - 1;
+                while (parameters.size() <= index) {
+                    parameters.add(null);
+                }
+                parameters.set(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.startsWith("execute")) {
+                long start = System.nanoTime();
+                try {
+                    return invoke(statement, method, args);
+                } finally {
+                    String sql = args != null && args[0] instanceof String ? (String) args[0] : preparedSql;
+                    traced(sql, parameters, System.nanoTime() - start);
+                }
+            }
+            return invoke(statement, method, args);
+        });
+    }
+
+    private void traced(String sql, List<Object> parameters, long elapsed) {
+        String traceId = TraceSampling.getTraceId();
+        boolean slow = elapsed >= settings.getSlowQueryThreshold().toNanos();
+        if (!slow && traceId == null && !LOGGER.isDebugEnabled()) {
+            return;
+        }
+
+        // Of the last row for a batch
+        List<String> params = parameters.stream().map(SqlTracingDataSource::format).collect(Collectors.toList());
+        Object[] values = {traceId == null ? "-" : traceId, TimeUnit.NANOSECONDS.toMillis(elapsed), getCaller(), sql,
+                params};
+        if (slow) {
+            LOGGER.warn(MESSAGE, values);
+        } else if (traceId != null) {
+            LOGGER.info(MESSAGE, values);
+        } else {
+            LOGGER.debug(MESSAGE, values);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package fr.fullstack.shopapp.trace;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Sampled request traces and slow query log, tuned at runtime through {@link TraceSettings}. The logs are written by
+ * the asynchronous appender of logback-spring.xml, away from the request threads.
+ */
+@Configuration
+public class TraceConfig {
+    /**
+     * Times the statements of the data source. Static, so that it is created before the beans it processes.
+     */
+    @Bean
+    public static BeanPostProcessor traceBeanPostProcessor(ObjectProvider<TraceSettings> settings) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // The data source of the application, the pools of the replicas are behind it
+                if ("dataSource".equals(beanName) && bean instanceof DataSource) {
+                    return new SqlTracingDataSource((DataSource) bean, settings.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public TraceSamplingFilter traceSamplingFilter(TraceSettings settings) {
+        return new TraceSamplingFilter(settings);
+    }
+}
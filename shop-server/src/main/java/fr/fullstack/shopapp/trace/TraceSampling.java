@@ -0,0 +1,36 @@
+package fr.fullstack.shopapp.trace;
+
+/**
+ * Trace id of the sampled request run by the current thread: its SQL statements are logged, the statements of the
+ * other requests only when they are slow.
+ */
+public class TraceSampling {
+    private static final ThreadLocal<String> TRACE_ID = new ThreadLocal<>();
+
+    private TraceSampling() {
+    }
+
+    /**
+     * @return the trace id of the current request, null when it is not sampled
+     */
+    public static String getTraceId() {
+        return TRACE_ID.get();
+    }
+
+    /**
+     * @return the previous trace id, given back to {@link #restore(String)}
+     */
+    static String sample(String traceId) {
+        String previous = TRACE_ID.get();
+        TRACE_ID.set(traceId);
+        return previous;
+    }
+
+    static void restore(String previous) {
+        if (previous != null) {
+            TRACE_ID.set(previous);
+        } else {
+            TRACE_ID.remove();
+        }
+    }
+}
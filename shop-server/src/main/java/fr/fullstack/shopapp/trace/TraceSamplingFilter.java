@@ -0,0 +1,85 @@
+package fr.fullstack.shopapp.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the requests at the rate of the settings: a sampled request is logged with a trace id, at INFO, and so are
+ * its SQL statements. With the http logger at DEBUG, all the requests are logged.
+ */
+public class TraceSamplingFilter extends OncePerRequestFilter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TraceSettings.HTTP_LOGGER);
+
+    private final TraceSettings settings;
+
+    public TraceSamplingFilter(TraceSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean sampled = random.nextDouble() < settings.getSampleRate();
+        if (!sampled && !LOGGER.isDebugEnabled()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String traceId = sampled ? Long.toHexString(random.nextLong()) : null;
+        String previous = TraceSampling.sample(traceId);
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            TraceSampling.restore(previous);
+            if (request.isAsyncStarted()) {
+                // Logged once the asynchronous response is written
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        log(traceId, request, response, start);
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+                });
+            } else {
+                log(traceId, request, response, start);
+            }
+        }
+    }
+
+    private static void log(String traceId, HttpServletRequest request, HttpServletResponse response, long start) {
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        String uri = request.getQueryString() == null
+                ? request.getRequestURI()
+                : request.getRequestURI() + "?" + request.getQueryString();
+        String message = "request trace={} method={} uri={} status={} elapsed_ms={}";
+        if (traceId != null) {
+            LOGGER.info(message, traceId, request.getMethod(), uri, response.getStatus(), elapsed);
+        } else {
+            LOGGER.debug(message, "-", request.getMethod(), uri, response.getStatus(), elapsed);
+        }
+    }
+}
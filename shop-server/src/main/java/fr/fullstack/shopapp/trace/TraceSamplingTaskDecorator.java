@@ -0,0 +1,25 @@
+package fr.fullstack.shopapp.trace;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Carries the trace id of the submitting thread to the task, for the reads of a sampled request that are run on
+ * another thread.
+ */
+public class TraceSamplingTaskDecorator implements TaskDecorator {
+    @Override
+    public Runnable decorate(Runnable task) {
+        String traceId = TraceSampling.getTraceId();
+        if (traceId == null) {
+            return task;
+        }
+        return () -> {
+            String previous = TraceSampling.sample(traceId);
+            try {
+                task.run();
+            } finally {
+                TraceSampling.restore(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,91 @@
+package fr.fullstack.shopapp.trace;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggerConfiguration;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Sampling rate of the request traces, slow query threshold and levels of the loggers, changed at runtime by the
+ * trace API (/api/v1/trace) without a restart.
+ */
+@Component
+public class TraceSettings {
+    public static final String HTTP_LOGGER = "fr.fullstack.shopapp.trace.http";
+
+    public static final String SQL_LOGGER = "fr.fullstack.shopapp.trace.sql";
+
+    // The loggers shown by the status, with the ones changed at runtime
+    private final Set<String> loggers = new ConcurrentSkipListSet<>(
+            Set.of(HTTP_LOGGER, SQL_LOGGER, "org.apache.http", "org.hibernate.SQL", "org.hibernate.search.query")
+    );
+
+    @Autowired
+    private LoggingSystem loggingSystem;
+
+    @Value("${shop.trace.sample-rate:0.01}")
+    private volatile double sampleRate;
+
+    @Value("${shop.trace.slow-query-threshold:200ms}")
+    private volatile Duration slowQueryThreshold;
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public Duration getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    public TraceStatus getStatus() {
+        Map<String, String> levels = new TreeMap<>();
+        for (String logger : loggers) {
+            // Null for a logger not created yet
+            LoggerConfiguration configuration = loggingSystem.getLoggerConfiguration(logger);
+            if (configuration != null) {
+                levels.put(logger, configuration.getEffectiveLevel().name());
+            }
+        }
+        return new TraceStatus(sampleRate, slowQueryThreshold.toMillis(), levels);
+    }
+
+    /**
+     * @param level the new level of the logger, the one of its parent when empty
+     */
+    public TraceStatus setLevel(String logger, Optional<String> level) throws Exception {
+        LogLevel logLevel = null;
+        if (level.isPresent()) {
+            try {
+                logLevel = LogLevel.valueOf(level.get().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new Exception("Unknown level " + level.get() + ", the levels are TRACE, DEBUG, INFO, WARN, "
+                                    + "ERROR and OFF");
+            }
+        }
+        loggingSystem.setLogLevel(logger, logLevel);
+        loggers.add(logger);
+        return getStatus();
+    }
+
+    public TraceStatus update(Optional<Double> sampleRate, Optional<Long> slowQueryThresholdMillis) throws Exception {
+        if (sampleRate.isPresent() && (sampleRate.get() < 0 || sampleRate.get() > 1)) {
+            throw new Exception("The sample rate must be between 0 and 1");
+        }
+        if (slowQueryThresholdMillis.isPresent() && slowQueryThresholdMillis.get() < 0) {
+            throw new Exception("The slow query threshold must be positive");
+        }
+
+        sampleRate.ifPresent(rate -> this.sampleRate = rate);
+        slowQueryThresholdMillis.ifPresent(millis -> slowQueryThreshold = Duration.ofMillis(millis));
+        return getStatus();
+    }
+}
@@ -0,0 +1,32 @@
+package fr.fullstack.shopapp.trace;
+
+import java.util.Map;
+
+/**
+ * Current trace settings, with the effective level of the trace loggers.
+ */
+public class TraceStatus {
+    private final Map<String, String> levels;
+
+    private final double sampleRate;
+
+    private final long slowQueryThresholdMillis;
+
+    public TraceStatus(double sampleRate, long slowQueryThresholdMillis, Map<String, String> levels) {
+        this.sampleRate = sampleRate;
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+        this.levels = levels;
+    }
+
+    public Map<String, String> getLevels() {
+        return levels;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryThresholdMillis;
+    }
+}
@@ -0,0 +1,62 @@
+package fr.fullstack.shopapp.util;
+
+import fr.fullstack.shopapp.repository.ResourceVersion;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+public class AsyncReads {
+    // Notes of the lists and multi-gets in the API documentation
+    public static final String NOT_STREAMED = "Not streamed: the result is read whole, then written. Only the exports "
+            + "are written as they are read";
+
+    /**
+     * Runs the read on the executor and returns at once, the request thread is released until the response is ready.
+     * The errors of the read are bad requests, like in the other controllers, and a full executor is a 503.
+     */
+    public static <T> CompletableFuture<ResponseEntity<T>> supply(Executor executor, Read<ResponseEntity<T>> read) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return read.get();
+                } catch (ResponseStatusException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many reads in progress");
+        }
+    }
+
+    /**
+     * Conditional request of {@link ConditionalRequests}, for the reads run on the executor: only the headers of the
+     * request are read there, the validators are returned with the response, which is written by a container thread.
+     */
+    public static <T> ResponseEntity<T> whenModified(HttpServletRequest request, ResourceVersion version, Read<T> read)
+            throws Exception {
+        if (ConditionalRequests.isNotModified(new ServletWebRequest(request), version)) {
+            return withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), version).build();
+        }
+        return withValidators(ResponseEntity.ok(), version).body(read.get());
+    }
+
+    private static ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder builder,
+                                                             ResourceVersion version) {
+        builder.eTag(version.getETag());
+        version.getLastModified().ifPresent(builder::lastModified);
+        return builder;
+    }
+
+    @FunctionalInterface
+    public interface Read<T> {
+        T get() throws Exception;
+    }
+}
@@ -0,0 +1,44 @@
+package fr.fullstack.shopapp.util;
+
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class CompressedResponses {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Opens the body of a streamed response, compressed on the fly with gzip when the Accept-Encoding header of the
+     * client allows it. The returned stream must be closed to write the end of the compressed body.
+     */
+    public static OutputStream open(HttpServletRequest request, HttpServletResponse response, String contentType)
+            throws IOException {
+        response.setContentType(contentType);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            return response.getOutputStream();
+        }
+
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return new GZIPOutputStream(response.getOutputStream(), BUFFER_SIZE);
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            if (parameters[0].trim().equalsIgnoreCase("gzip")) {
+                // gzip;q=0 refuses the coding
+                return parameters.length == 1 || !parameters[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,16 @@
+package fr.fullstack.shopapp.util;
+
+import fr.fullstack.shopapp.repository.ResourceVersion;
+import org.springframework.web.context.request.WebRequest;
+
+public class ConditionalRequests {
+    /**
+     * Compares the If-None-Match and If-Modified-Since headers to the validators, which are also set on the response.
+     * True when the copy of the client is still valid: the response is then a 304 without body.
+     */
+    public static boolean isNotModified(WebRequest request, ResourceVersion version) {
+        return version.getLastModified()
+                .map(lastModified -> request.checkNotModified(version.getETag(), lastModified.toEpochMilli()))
+                .orElseGet(() -> request.checkNotModified(version.getETag()));
+    }
+}
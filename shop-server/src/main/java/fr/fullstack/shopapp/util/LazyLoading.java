@@ -0,0 +1,36 @@
+package fr.fullstack.shopapp.util;
+
+import fr.fullstack.shopapp.model.Product;
+import fr.fullstack.shopapp.model.Shop;
+import org.hibernate.Hibernate;
+
+/**
+ * Loads the lazy associations serialized in the responses, while the transaction is still open. With batch
+ * fetching, initializing the first collection of a role also loads it for the other entities of the session, so a
+ * page costs a fixed number of queries whatever its size.
+ */
+public class LazyLoading {
+    public static Product initializeProduct(Product product) {
+        Hibernate.initialize(product.getCategories());
+        Hibernate.initialize(product.getLocalizedProducts());
+        if (product.getShop() != null) {
+            initializeShop(product.getShop());
+        }
+        return product;
+    }
+
+    public static <T extends Iterable<Product>> T initializeProducts(T products) {
+        products.forEach(LazyLoading::initializeProduct);
+        return products;
+    }
+
+    public static Shop initializeShop(Shop shop) {
+        Hibernate.initialize(shop.getOpeningHours());
+        return shop;
+    }
+
+    public static <T extends Iterable<Shop>> T initializeShops(T shops) {
+        shops.forEach(LazyLoading::initializeShop);
+        return shops;
+    }
+}
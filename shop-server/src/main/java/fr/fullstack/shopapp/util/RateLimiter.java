@@ -0,0 +1,30 @@
+package fr.fullstack.shopapp.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the callers of several threads under a maximum rate of permits per second, by making them wait for their
+ * turn.
+ */
+public class RateLimiter {
+    private final double nanosPerPermit;
+
+    private long nextFreeNanos = System.nanoTime();
+
+    public RateLimiter(double permitsPerSecond) {
+        this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+    }
+
+    public void acquire(long permits) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextFreeNanos);
+            nextFreeNanos = start + (long) (permits * nanosPerPermit);
+            waitNanos = start - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+-- Indexes previously declared on the entities, already created by Hibernate on the existing databases
+
+create index if not exists idx_indexing_events_created_at on indexing_events (created_at);
+
+create index if not exists idx_indexing_events_process_after on indexing_events (process_after, id);
+
+create index if not exists idx_shops_created_at on shops (created_at, id);
+
+create index if not exists idx_shops_name on shops (name, id);
+
+create index if not exists idx_shops_nb_products on shops (nb_products, id);
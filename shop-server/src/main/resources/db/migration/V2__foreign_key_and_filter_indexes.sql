@@ -0,0 +1,21 @@
+-- Products of a shop: listings, keyset pages, counters and detachment of the products of a deleted shop
+create index if not exists idx_products_shop_id on products (shop_id, id);
+
+-- Products of a category: filters, counters and removal of a deleted category
+create index if not exists idx_products_categories_category_id on products_categories (category_id, product_id);
+
+-- Categories of the products, batch fetched by product
+create index if not exists idx_products_categories_product_id on products_categories (product_id, category_id);
+
+-- Localized products and opening hours, batch fetched by owner
+create index if not exists idx_products_localized_product_product_id on products_localized_product (product_id);
+
+create index if not exists idx_shops_opening_hours_shop_id on shops_opening_hours (shop_id);
+
+-- Shop listings filtered on the vacations, alone or with a creation range
+create index if not exists idx_shops_in_vacations_created_at on shops (in_vacations, created_at, id);
+
+-- In the order of the default sort by nbProducts, which H2 cannot read backwards
+drop index if exists idx_shops_nb_products;
+
+create index idx_shops_nb_products on shops (nb_products desc, id desc);
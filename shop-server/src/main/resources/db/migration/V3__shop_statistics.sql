@@ -0,0 +1,36 @@
+-- Products of each category in each shop, maintained by ShopCounterService with the prices of the shops
+create table if not exists shop_categories (
+    shop_id int8 not null references shops (id) on delete cascade,
+    category_id int8 not null references categories (id) on delete cascade,
+    nb_products int8 not null default 0,
+    primary key (shop_id, category_id)
+);
+
+-- Counters of a deleted category
+create index if not exists idx_shop_categories_category_id on shop_categories (category_id);
+
+-- Shop listings sorted by the statistics, in the default direction of each sort
+create index if not exists idx_shops_nb_categories on shops (nb_categories desc, id desc);
+
+create index if not exists idx_shops_min_price on shops (min_price, id);
+
+create index if not exists idx_shops_avg_price on shops (avg_price, id);
+
+create index if not exists idx_shops_max_price on shops (max_price, id);
+
+-- Statistics of the existing shops, the price columns have just been created by Hibernate, the counters of the
+-- categories may already have been filled by fill_tables.sql
+insert into shop_categories (shop_id, category_id, nb_products)
+select p.shop_id, pc.category_id, count(*) from products p
+join products_categories pc on pc.product_id = p.id
+where p.shop_id is not null
+group by p.shop_id, pc.category_id
+on conflict do nothing;
+
+update shops set
+    min_price = coalesce((select min(p.price) from products p where p.shop_id = shops.id), 0),
+    max_price = coalesce((select max(p.price) from products p where p.shop_id = shops.id), 0),
+    avg_price = coalesce((select avg(cast(p.price as double precision)) from products p
+        where p.shop_id = shops.id), 0),
+    total_price = coalesce((select sum(cast(p.price as double precision)) from products p
+        where p.shop_id = shops.id), 0);
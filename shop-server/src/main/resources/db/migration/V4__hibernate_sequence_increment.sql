@@ -0,0 +1,4 @@
+-- The ids are reserved by blocks of 50 (pooled optimizer, see model/package-info.java): a sequence still incremented
+-- by 1 would hand out blocks overlapping the ids already used. The next value is the last one plus 50, the block
+-- reserved with it starts right after the last id.
+alter sequence if exists hibernate_sequence increment by 50;
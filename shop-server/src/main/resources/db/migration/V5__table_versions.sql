@@ -0,0 +1,10 @@
+-- Versions of the tables listed by the API, the validators of the list responses. Bumped by TableVersionService
+-- once a write is committed, a list request reads them by primary key instead of aggregating the tables.
+create table if not exists table_versions (
+    table_name varchar(64) not null,
+    version int8 not null default 0,
+    primary key (table_name)
+);
+
+insert into table_versions (table_name, version) values ('categories', 0), ('products', 0), ('shops', 0)
+on conflict do nothing;
@@ -0,0 +1,5 @@
+-- Back to the order of V1, like the other listing indexes: PostgreSQL reads a btree index backwards, the default sort
+-- by nbProducts, most products first, is read from its end
+drop index if exists idx_shops_nb_products;
+
+create index idx_shops_nb_products on shops (nb_products, id);
@@ -0,0 +1,81 @@
+package fr.fullstack.shopapp.metrics;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Assertions on the statements that the RequestStatistics of a request counted, read from the X-Statement-Count
+ * header of its response and compared to the @StatementBudget of the controller method that served it.
+ */
+class RequestStatisticsAssert {
+    private final Set<Method> checkedHandlers = new HashSet<>();
+
+    private final RequestMappingHandlerMapping handlerMapping;
+
+    RequestStatisticsAssert(RequestMappingHandlerMapping handlerMapping) {
+        this.handlerMapping = handlerMapping;
+    }
+
+    static int getStatements(HttpResponse<?> response) {
+        Optional<String> statements = response.headers().firstValue(StatementCountFilter.HEADER);
+        assertTrue(statements.isPresent(), () -> response.statusCode() + " response of " + response.uri()
+                + " without the " + StatementCountFilter.HEADER + " header");
+        return Integer.parseInt(statements.get());
+    }
+
+    /**
+     * @param excludedHandlers the names (Class.method) of the budgeted methods that cannot be called in the tests
+     */
+    void assertAllBudgetsChecked(Set<String> excludedHandlers) {
+        List<String> unchecked = handlerMapping.getHandlerMethods().values().stream()
+                .filter(handler -> handler.hasMethodAnnotation(StatementBudget.class))
+                .map(HandlerMethod::getMethod)
+                .filter(method -> !checkedHandlers.contains(method))
+                .map(method -> method.getDeclaringClass().getSimpleName() + "." + method.getName())
+                .filter(name -> !excludedHandlers.contains(name))
+                .sorted()
+                .collect(Collectors.toList());
+        assertTrue(unchecked.isEmpty(), () -> "Statement budgets not checked: " + unchecked);
+    }
+
+    void assertWithinBudget(HttpResponse<String> response) throws Exception {
+        URI uri = response.uri();
+        assertEquals(200, response.statusCode(), () -> uri + ": " + response.body());
+        HandlerMethod handler = getHandler(uri);
+        StatementBudget budget = handler.getMethodAnnotation(StatementBudget.class);
+        assertNotNull(budget, () -> handler + " has no statement budget");
+
+        int statements = getStatements(response);
+        assertTrue(statements <= budget.value(), () -> uri + " sent " + statements
+                + " SQL statements, over the budget of " + budget.value() + " of " + handler);
+        checkedHandlers.add(handler.getMethod());
+    }
+
+    // The controller method of the request, found like the dispatcher does
+    private HandlerMethod getHandler(URI uri) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri.getRawPath());
+        request.setQueryString(uri.getRawQuery());
+        UriComponentsBuilder.fromUri(uri).build().getQueryParams().forEach(
+                (name, values) -> request.addParameter(name, values.toArray(new String[0]))
+        );
+        HandlerExecutionChain chain = handlerMapping.getHandler(request);
+        assertNotNull(chain, () -> "No controller method for " + uri);
+        return (HandlerMethod) chain.getHandler();
+    }
+}
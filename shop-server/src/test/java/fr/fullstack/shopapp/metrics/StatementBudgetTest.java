@@ -0,0 +1,195 @@
+package fr.fullstack.shopapp.metrics;
+
+import fr.fullstack.shopapp.bulk.ProductImportFormat;
+import fr.fullstack.shopapp.bulk.ProductImportReport;
+import fr.fullstack.shopapp.model.Category;
+import fr.fullstack.shopapp.model.OpeningHoursShop;
+import fr.fullstack.shopapp.model.Shop;
+import fr.fullstack.shopapp.service.CategoryService;
+import fr.fullstack.shopapp.service.ProductImportService;
+import fr.fullstack.shopapp.service.ShopService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Calls every read with a statement budget, with pages of 1, 20 and 50 elements, and fails when a request sends more
+ * SQL statements than the budget of its controller method: the budgets do not depend on the size of the page.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"lucene", "test"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class StatementBudgetTest {
+    private static final List<String> APIS = List.of("/api/v1", "/api/v1/async");
+
+    // Estimated from the statistics of PostgreSQL (pg_class)
+    private static final Set<String> POSTGRESQL_ONLY = Set.of("ShopController.getAllShopsWithEstimatedTotal");
+
+    private static final int[] SIZES = {1, 20, 50};
+
+    private long categoryId;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Autowired
+    @Qualifier("requestMappingHandlerMapping")
+    private RequestMappingHandlerMapping handlerMapping;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    private long shopId;
+
+    @Autowired
+    private ShopService shopService;
+
+    @BeforeAll
+    public void createCatalog() throws Exception {
+        List<Long> categoryIds = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Category category = new Category();
+            category.setName("Catégorie " + i);
+            categoryIds.add(categoryService.createCategory(category).getId());
+        }
+        categoryId = categoryIds.get(0);
+
+        // More shops and products than the largest page
+        for (int i = 0; i < 60; i++) {
+            OpeningHoursShop openingHours = new OpeningHoursShop();
+            openingHours.setDay(1 + i % 7);
+            openingHours.setOpenAt(LocalTime.of(9, 0));
+            openingHours.setCloseAt(LocalTime.of(18, 0));
+            Shop shop = new Shop();
+            shop.setName("Boutique " + i);
+            shop.setInVacations(i % 10 == 0);
+            shop.setOpeningHours(new ArrayList<>(List.of(openingHours)));
+            shopId = shopService.createShop(shop).getId();
+        }
+
+        String categories = categoryIds.stream().map(String::valueOf).collect(Collectors.joining("|"));
+        StringBuilder csv = new StringBuilder("price,categories,name_fr,description_fr,name_en,description_en\n");
+        for (int i = 0; i < 60; i++) {
+            csv.append(String.format("%d,%s,Produit %d,Description %d,Product %d,Description %d\n",
+                                     i + 1, categories, i, i, i, i));
+        }
+        ProductImportReport report = productImportService.importProducts(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                ProductImportFormat.CSV,
+                Optional.of(shopId)
+        );
+        assertEquals(60, report.getNbImported(), () -> "Products not imported: " + report.getErrors());
+    }
+
+    @Test
+    public void everyBudgetHoldsWhateverThePageSize() throws Exception {
+        RequestStatisticsAssert statistics = new RequestStatisticsAssert(handlerMapping);
+        for (String path : getPaths()) {
+            for (int size : SIZES) {
+                statistics.assertWithinBudget(get(path + (path.contains("?") ? "&" : "?") + "size=" + size));
+            }
+        }
+        statistics.assertAllBudgetsChecked(POSTGRESQL_ONLY);
+    }
+
+    @Test
+    public void notModifiedResponsesHaveTheStatementCount() throws Exception {
+        for (String api : APIS) {
+            HttpResponse<String> list = get(api + "/shops");
+            String eTag = list.headers().firstValue("ETag").orElseThrow();
+            HttpResponse<String> notModified = client.send(
+                    HttpRequest.newBuilder(getUri(api + "/shops")).header("If-None-Match", eTag).build(),
+                    HttpResponse.BodyHandlers.ofString()
+            );
+            assertEquals(304, notModified.statusCode(), api);
+            RequestStatisticsAssert.getStatements(notModified);
+        }
+    }
+
+    @Test
+    public void streamedResponsesHaveTheStatementCount() throws Exception {
+        for (String api : APIS) {
+            HttpResponse<String> export = get(api + "/products/export");
+            assertEquals(200, export.statusCode(), api);
+            RequestStatisticsAssert.getStatements(export);
+        }
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(getUri(path)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<String> getPaths() {
+        String productIds = jdbcTemplate.queryForList(
+                "SELECT id FROM products WHERE shop_id = ? ORDER BY id LIMIT 50", Long.class, shopId
+        ).stream().map(String::valueOf).collect(Collectors.joining(","));
+        String shopIds = jdbcTemplate.queryForList("SELECT id FROM shops ORDER BY id LIMIT 50", Long.class)
+                .stream().map(String::valueOf).collect(Collectors.joining(","));
+        String productId = productIds.split(",")[0];
+
+        List<String> paths = new ArrayList<>();
+        for (String api : APIS) {
+            // PRODUCTS
+            paths.add(api + "/products");
+            paths.add(api + "/products?shopId=" + shopId);
+            paths.add(api + "/products?shopId=" + shopId + "&categoryId=" + categoryId);
+            paths.add(api + "/products/" + productId);
+            paths.add(api + "/products?ids=" + productIds);
+            // SHOPS
+            paths.add(api + "/shops");
+            paths.add(api + "/shops?sortBy=nbProducts&inVacations=false");
+            paths.add(api + "/shops/" + shopId);
+            paths.add(api + "/shops/" + shopId + "/stats");
+            paths.add(api + "/shops?ids=" + shopIds);
+            // CATEGORIES
+            paths.add(api + "/categories");
+            paths.add(api + "/categories/" + categoryId);
+            paths.add(api + "/categories?ids=" + categoryId);
+        }
+        // The paging variants exist only on the servlet API
+        paths.add("/api/v1/products?paging=cursor&shopId=" + shopId);
+        paths.add("/api/v1/products?paging=estimate&shopId=" + shopId);
+        paths.add("/api/v1/products?paging=slice&shopId=" + shopId);
+        paths.add("/api/v1/shops?paging=cursor&sortBy=name");
+        paths.add("/api/v1/shops?paging=slice&inVacations=true");
+        paths.add("/api/v1/shops?paging=cursor&sortBy=minPrice");
+        paths.add("/api/v1/shops?paging=slice&sortBy=nbCategories");
+        paths.add("/api/v1/categories?paging=estimate");
+        paths.add("/api/v1/categories?paging=slice");
+        return paths;
+    }
+
+    private URI getUri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}